@@ -0,0 +1,58 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty;
+
+import io.openliberty.generate.InstallGenerator;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Provides the generated Liberty installations that benchmarks run against, so that results do not depend on a real install.
+ * Each installation is generated with the default shape of {@link InstallGenerator}, and the same size always produces the same installation.
+ */
+public final class FixtureInstall {
+    private static final Map<Integer, Path> INSTALLS = new HashMap<>();
+
+    private FixtureInstall() {}
+
+    /** Returns an installation with the given number of features, generating it if this JVM has not already done so */
+    public static synchronized Path get(int features) {
+        return INSTALLS.computeIfAbsent(features, n -> {
+            try {
+                Path root = Files.createTempDirectory("lx-fixture-" + n + "-");
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> delete(root)));
+                int exitCode = new CommandLine(new InstallGenerator()).execute("--features", Integer.toString(n), root.toString());
+                if (0 != exitCode) throw new IllegalStateException("Could not generate an installation with " + n + " features");
+                return root;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void delete(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        } catch (IOException ignored) {
+            // leave it for the OS to clean up
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.FixtureInstall;
+import io.openliberty.explore.LibertyExplorer.Interpolation;
+import io.openliberty.inspect.Catalog;
+import io.openliberty.inspect.Element;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answering queries against an already loaded catalog.
+ * Each query is run with both interpolation modes, to compare computing reachability with enumerating paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark {
+    @Param({"1000", "10000"})
+    public int features;
+
+    @Param({"reachable", "paths"})
+    public String interpolation;
+
+    /**
+     * Space-separated query patterns, matching the same features whatever the size of the fixture.
+     * Broader patterns are left out, since enumerating the paths between hundreds of results can be very slow.
+     */
+    @Param({"feature0-1.0 feature8-1.0", "feature1??-1.0", "feature1??-1.0 feature2??-1.0"})
+    public String patterns;
+
+    private Catalog catalog;
+    private final PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+
+    @Setup
+    public void setUp() throws Exception {
+        catalog = new Catalog(FixtureInstall.get(features), true, 1, null);
+        // these queries cannot interpolate through the cycles in the fixture, so both modes must find the same elements
+        var reachable = explorer(Interpolation.reachable).interpolatedResults();
+        var paths = explorer(Interpolation.paths).interpolatedResults();
+        if (!reachable.equals(paths)) throw new IllegalStateException("Interpolation modes disagree for " + patterns + ": " + reachable + " and " + paths);
+    }
+
+    private LibertyExplorer explorer(Interpolation mode) throws Exception {
+        var explorer = new LibertyExplorer(catalog, null, nowhere, nowhere);
+        explorer.interpolation = mode;
+        explorer.init(List.of(patterns.split(" ")));
+        return explorer;
+    }
+
+    @Benchmark
+    public Set<Element> interpolatedResults() throws Exception {
+        return explorer(Interpolation.valueOf(interpolation)).interpolatedResults();
+    }
+
+    @Benchmark
+    public Graph<Element, DefaultEdge> subgraph() throws Exception {
+        return explorer(Interpolation.valueOf(interpolation)).subgraph();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.FixtureInstall;
+import io.openliberty.inspect.Catalog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import picocli.CommandLine;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/** Running the graph and tree commands against an already loaded catalog, discarding the output */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RenderBenchmark {
+    @Param({"1000"})
+    public int features;
+
+    @Param({"graph", "tree"})
+    public String command;
+
+    @Param({"feature0-1.0/**", "*"})
+    public String pattern;
+
+    @Param({"false", "true"})
+    public boolean bundles;
+
+    private Catalog catalog;
+    private final PrintStream nowhere = new PrintStream(OutputStream.nullOutputStream());
+
+    @Setup
+    public void setUp() throws Exception {
+        catalog = new Catalog(FixtureInstall.get(features), bundles, 1, null);
+    }
+
+    @Benchmark
+    public int render() {
+        int exitCode = new CommandLine(new LibertyExplorer(catalog, null, nowhere, nowhere)).execute(command, pattern);
+        if (0 != exitCode) throw new IllegalStateException(command + " failed with exit code " + exitCode);
+        return exitCode;
+    }
+}
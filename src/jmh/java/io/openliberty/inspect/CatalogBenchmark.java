@@ -0,0 +1,66 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import io.openliberty.FixtureInstall;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Loading a catalog from the installation, or from a snapshot of it */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CatalogBenchmark {
+    @Param({"1000", "10000"})
+    int features;
+
+    @Param({"1", "4"})
+    int threads;
+
+    @Param({"false", "true"})
+    boolean bundles;
+
+    private Path root;
+    private Path cacheDir;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = FixtureInstall.get(features);
+        // write a snapshot for the snapshot benchmark to read
+        cacheDir = Files.createTempDirectory("lx-cache-");
+        cacheDir.toFile().deleteOnExit();
+        new Catalog(root, bundles, threads, cacheDir);
+        Snapshot.file(cacheDir, root, bundles).toFile().deleteOnExit();
+    }
+
+    @Benchmark
+    public Catalog load() throws IOException {
+        return new Catalog(root, bundles, threads, null);
+    }
+
+    @Benchmark
+    public Catalog loadFromSnapshot() throws IOException {
+        return new Catalog(root, bundles, threads, cacheDir);
+    }
+}
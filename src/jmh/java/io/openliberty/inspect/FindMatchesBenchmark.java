@@ -0,0 +1,59 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import io.openliberty.FixtureInstall;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.stream.Collectors.toList;
+
+/** Finding the elements whose names match a pattern */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FindMatchesBenchmark {
+    @Param({"1000", "10000"})
+    int features;
+
+    @Param({"*", "feature1*", "com.ibm.websphere.appserver.feature1?-1.0", "regex:.*feature\\d+5-1\\.0"})
+    String pattern;
+
+    private Catalog catalog;
+    private NamePattern namePattern;
+
+    @Setup
+    public void setUp() throws IOException {
+        catalog = new Catalog(FixtureInstall.get(features), true, 1, null);
+        namePattern = NamePattern.compile(pattern);
+    }
+
+    @Benchmark
+    public Object findMatches() {
+        return catalog.findMatches(namePattern).collect(toList());
+    }
+
+    @Benchmark
+    public Object compileAndFindMatches() {
+        return catalog.findMatches(pattern).collect(toList());
+    }
+}
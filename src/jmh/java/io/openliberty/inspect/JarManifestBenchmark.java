@@ -0,0 +1,76 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import io.openliberty.FixtureInstall;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/** Reading the headers of every bundle in an installation, straight from the zip directory and with {@link JarFile} as the baseline */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JarManifestBenchmark {
+    private static final String[] HEADERS = {"Bundle-SymbolicName", "Bundle-Name", "Bundle-Version", "Export-Package", "Import-Package", "Require-Bundle", "Fragment-Host"};
+
+    @Param({"1000", "10000"})
+    int features;
+
+    private List<Path> jars;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (Stream<Path> files = Files.list(FixtureInstall.get(features).resolve("lib"))) {
+            jars = files.filter(p -> p.toString().endsWith(".jar")).sorted().collect(toUnmodifiableList());
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, String>> readWithJarManifest() throws IOException {
+        List<Map<String, String>> headers = new ArrayList<>(jars.size());
+        for (Path jar : jars) headers.add(JarManifest.read(jar, HEADERS));
+        return headers;
+    }
+
+    @Benchmark
+    public List<Attributes> readWithJarFile() throws IOException {
+        List<Attributes> headers = new ArrayList<>(jars.size());
+        for (Path jar : jars) {
+            try (JarFile jarFile = new JarFile(jar.toFile())) {
+                Manifest manifest = jarFile.getManifest();
+                headers.add(null == manifest ? null : manifest.getMainAttributes());
+            }
+        }
+        return headers;
+    }
+}
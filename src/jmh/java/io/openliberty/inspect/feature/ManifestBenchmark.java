@@ -0,0 +1,112 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect.feature;
+
+import io.openliberty.generate.InstallGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parsing a feature manifest, and the header values within it.
+ * The regular expression parser that the header lexer replaced is kept in the tests, and measured here as a baseline,
+ * as is reading the headers with {@link Manifest}, which the manifest scanner replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ManifestBenchmark {
+    /** The number of entries in the Subsystem-Content header */
+    @Param({"10", "500"})
+    int entries;
+
+    private Path manifest;
+    private String content;
+
+    @Setup
+    public void setUp() throws IOException {
+        content = IntStream.range(0, entries)
+                .mapToObj(i -> i % 2 == 0
+                        ? InstallGenerator.bundleName(i) + "; version=\"[1.0,2.0)\""
+                        : InstallGenerator.FEATURE_PREFIX + InstallGenerator.featureName(i, 1) + "; type=\"osgi.subsystem.feature\"; ibm.tolerates:=\"2.0,3.0\"")
+                .collect(Collectors.joining(","));
+        var mf = new Manifest();
+        Attributes attributes = mf.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Subsystem-SymbolicName", InstallGenerator.FEATURE_PREFIX + "big-1.0; visibility:=public");
+        attributes.putValue("Subsystem-Version", "1.0.0");
+        attributes.putValue("IBM-ShortName", "big-1.0");
+        attributes.putValue("Subsystem-Content", content);
+        manifest = Files.createTempFile("lx-benchmark-", ".mf");
+        manifest.toFile().deleteOnExit();
+        try (OutputStream out = Files.newOutputStream(manifest)) {
+            mf.write(out);
+        }
+    }
+
+    @Benchmark
+    public Feature parseFeature() {
+        return new Feature(manifest);
+    }
+
+    @Benchmark
+    public Map<ManifestKey, String> readHeaders() throws IOException {
+        return ManifestKey.read(manifest, Feature.HEADERS);
+    }
+
+    /** The baseline for {@link #readHeaders()}: parsing the whole manifest */
+    @Benchmark
+    public Attributes readHeadersWithJarManifest() throws IOException {
+        try (InputStream in = Files.newInputStream(manifest)) {
+            return new Manifest(in).getMainAttributes();
+        }
+    }
+
+    @Benchmark
+    public List<ManifestValueEntry> parseHeader() {
+        return HeaderLexer.parse(content);
+    }
+
+    /** The baseline for {@link #parseHeader()} */
+    @Benchmark
+    public List<ManifestValueEntry> parseHeaderWithRegex() {
+        return RegexHeaderParser.parse(content);
+    }
+
+    @Benchmark
+    public List<ContentSpec> parseContentSpecs() {
+        return HeaderLexer.parse(content).stream()
+                .map(Feature::createSpec)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+}
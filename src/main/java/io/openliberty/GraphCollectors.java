@@ -12,30 +12,26 @@
  */
 package io.openliberty;
 
+import io.openliberty.inspect.CompactGraph;
+import io.openliberty.inspect.CompactGraph.Subgraph;
+import io.openliberty.inspect.Element;
 import org.jgrapht.Graph;
-import org.jgrapht.graph.AsGraphUnion;
+import org.jgrapht.graph.DefaultEdge;
 
-import java.util.Collections;
-import java.util.Set;
-import java.util.function.BiConsumer;
-import java.util.function.BinaryOperator;
-import java.util.function.Function;
-import java.util.function.Supplier;
+import java.util.BitSet;
 import java.util.stream.Collector;
 
+import static java.util.stream.Collector.Characteristics.UNORDERED;
+
 public enum GraphCollectors {
     ;
-    public static <V,E> Collector<Graph<V, E>, ?, Graph<V, E>> toUnionWith(Graph<V,E> initialGraph) { return new ToUnion<>(initialGraph); }
 
-    private static class ToUnion<V,E> implements Collector<Graph<V,E>,ToUnion,Graph<V,E>> {
-        Graph<V, E> graph;
-        ToUnion(Graph<V,E> initialGraph) { this.graph = initialGraph; }
-        void add(Graph<V, E> graphToAdd) { graph = new AsGraphUnion<>(graph, graphToAdd); }
-        ToUnion addAll(ToUnion that) { add(that.graph); return this; }
-        public Supplier<ToUnion> supplier() {return () -> this;}
-        public BiConsumer<ToUnion, Graph<V, E>> accumulator() {return ToUnion::add;}
-        public BinaryOperator<ToUnion> combiner() {return ToUnion::addAll;}
-        public Function<ToUnion, Graph<V, E>> finisher() {return h -> h.graph;}
-        public Set<Characteristics> characteristics() {return Collections.emptySet();}
+    /**
+     * Collect subgraphs of a compact graph into their union.
+     * The vertex and edge ids of the subgraphs are merged, and a single graph is built from them at the end,
+     * so looking up the result costs the same however many subgraphs went into it.
+     */
+    public static Collector<Subgraph, ?, Graph<Element, DefaultEdge>> toUnionIn(CompactGraph graph) {
+        return Collector.of(() -> graph.subgraph(new BitSet()), Subgraph::addAll, Subgraph::addAll, graph::toGraph, UNORDERED);
     }
 }
@@ -0,0 +1,212 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.inspect.Catalog;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Answer many queries against one loaded catalog.
+ * Each line of the input is the command line of a list, graph or tree query, e.g. <code>tree --display symbolic servlet-4.0/**</code>.
+ * Blank lines and lines starting with <code>#</code> are ignored.
+ * The queries run in parallel, but their results are written in the order of the input.
+ */
+@Command(
+        name = "batch",
+        description = "Run many list, graph, or tree queries, one per line of a file or standard input, against the same installation"
+)
+public class BatchCommand implements Callable<Integer> {
+    private static final Set<String> QUERY_COMMANDS = Set.of("list", "graph", "tree");
+
+    @ParentCommand
+    private LibertyExplorer explorer;
+
+    @Parameters(arity = "0..1", description = "File of queries, one per line (defaults to standard input)")
+    Path input;
+
+    @Option(names = "--format", description = "How to write the results: ${COMPLETION-CANDIDATES} (defaults to ${DEFAULT-VALUE})")
+    Format format = Format.blocks;
+
+    @SuppressWarnings("unused")
+    enum Format {
+        /** each result after a header line naming the query, separated by blank lines */
+        blocks,
+        /** one JSON object per line, holding the query, its exit code, and its output */
+        ndjson
+    }
+
+    private static final class Result {
+        final int lineNumber;
+        final String query;
+        final int exitCode;
+        final String output;
+        final String errors;
+
+        Result(int lineNumber, String query, int exitCode, String output, String errors) {
+            this.lineNumber = lineNumber;
+            this.query = query;
+            this.exitCode = exitCode;
+            this.output = output;
+            this.errors = errors;
+        }
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        List<String> lines = readLines();
+        Catalog catalog = null == explorer.liberty ? explorer.loadCatalog() : explorer.liberty;
+        // the same pattern sets often recur across a batch
+        var queryCache = new QueryCache(lines.size());
+        ExecutorService workers = Executors.newFixedThreadPool(explorer.threads);
+        try {
+            List<Future<Result>> results = new ArrayList<>();
+            for (int i = 0; i < lines.size(); i++) {
+                String query = lines.get(i).strip();
+                if (query.isEmpty() || query.startsWith("#")) continue;
+                final int lineNumber = i + 1;
+                results.add(workers.submit(() -> run(catalog, queryCache, lineNumber, query)));
+            }
+            int exitCode = 0;
+            for (int i = 0; i < results.size(); i++) {
+                Result result = results.get(i).get();
+                write(result, 0 == i);
+                if (0 != result.exitCode) exitCode = 1;
+            }
+            explorer.out.flush();
+            return exitCode;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private List<String> readLines() throws IOException {
+        if (null != input && !"-".equals(input.toString())) return Files.readAllLines(input, Charset.defaultCharset());
+        var reader = new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset()));
+        List<String> lines = new ArrayList<>();
+        for (String line = reader.readLine(); null != line; line = reader.readLine()) lines.add(line);
+        return lines;
+    }
+
+    private Result run(Catalog catalog, QueryCache queryCache, int lineNumber, String query) {
+        var output = new ByteArrayOutputStream();
+        var errors = new ByteArrayOutputStream();
+        var out = new PrintStream(output, true, Charset.defaultCharset());
+        var err = new PrintStream(errors, true, Charset.defaultCharset());
+        List<String> args = split(query);
+        int exitCode;
+        if (QUERY_COMMANDS.contains(args.get(0))) {
+            var queryExplorer = new LibertyExplorer(catalog, queryCache, out, err);
+            // options of the batch that affect the results of each query
+            queryExplorer.verbose = explorer.verbose;
+            queryExplorer.interpolation = explorer.interpolation;
+            // only results written as they are can go to the terminal
+            queryExplorer.isTerminal = explorer.isTerminal && format == Format.blocks;
+            var commandLine = new CommandLine(queryExplorer);
+            commandLine.setOut(new PrintWriter(out, true));
+            commandLine.setErr(new PrintWriter(err, true));
+            exitCode = commandLine.execute(args.toArray(String[]::new));
+        } else {
+            err.println("Not a list, graph, or tree query: " + query);
+            exitCode = 2;
+        }
+        out.flush();
+        err.flush();
+        return new Result(lineNumber, query, exitCode, output.toString(Charset.defaultCharset()), errors.toString(Charset.defaultCharset()));
+    }
+
+    private void write(Result result, boolean isFirst) {
+        final PrintStream out = explorer.out;
+        switch (format) {
+            case blocks:
+                if (!isFirst) out.println();
+                out.println("==> " + result.query + " <==");
+                out.print(result.output);
+                // keep errors out of the results, but say which query they came from
+                if (!result.errors.isEmpty()) explorer.err.print("line " + result.lineNumber + ": " + result.errors);
+                break;
+            case ndjson:
+                out.print("{\"line\":" + result.lineNumber);
+                out.print(",\"query\":" + quote(result.query));
+                out.print(",\"exitCode\":" + result.exitCode);
+                out.print(",\"output\":" + quote(result.output));
+                if (!result.errors.isEmpty()) out.print(",\"errors\":" + quote(result.errors));
+                out.println("}");
+                break;
+        }
+    }
+
+    /** Split a query into arguments at whitespace, except within single or double quotes */
+    static List<String> split(String query) {
+        List<String> args = new ArrayList<>();
+        var arg = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+        for (char c : query.toCharArray()) {
+            if (0 != quote) {
+                if (c == quote) quote = 0;
+                else arg.append(c);
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inArg = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inArg) args.add(arg.toString());
+                arg.setLength(0);
+                inArg = false;
+            } else {
+                arg.append(c);
+                inArg = true;
+            }
+        }
+        if (inArg) args.add(arg.toString());
+        return args;
+    }
+
+    /** Returns the text as a JSON string literal */
+    static String quote(String text) {
+        var json = new StringBuilder(text.length() + 16).append('"');
+        for (char c : text.toCharArray()) {
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < ' ') json.append(String.format("\\u%04x", (int) c));
+                    else json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+}
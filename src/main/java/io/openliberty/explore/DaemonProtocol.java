@@ -0,0 +1,267 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.inspect.Catalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * The conversation between an lx command and a running <code>lx serve</code>.
+ * <p>
+ * The daemon listens on a loopback port, which it advertises in a port file in the cache directory,
+ * along with a random token that clients must present.
+ * The port file is only readable by its owner, so only that user can send queries.
+ * <p>
+ * A request is the token, the protocol version, the name of the client's output charset,
+ * whether the client's output is a terminal, and the command line arguments.
+ * The daemon accepts the request as soon as it starts on it, and then sends a sequence of frames,
+ * each holding some standard output or standard error, ending with a frame holding the exit code.
+ * A daemon that does not speak the client's version of the protocol closes the connection instead.
+ * <p>
+ * Until the request is accepted nothing has been written, so if the daemon cannot be reached,
+ * does not accept in time, or answers in a way the client does not understand, the command runs in the client instead.
+ * Once it is accepted, the client waits as long as the command takes, copying the output as it arrives
+ * rather than holding it all in memory.
+ */
+final class DaemonProtocol {
+    static final byte ACCEPTED = 'A';
+    static final byte STDOUT = 'O';
+    static final byte STDERR = 'E';
+    static final byte EXIT = 'X';
+    static final int VERSION = 3;
+    private static final int CONNECT_TIMEOUT_MILLIS = 1_000;
+    private static final int ACCEPT_TIMEOUT_MILLIS = 10_000;
+    private static final int COPY_BUFFER_SIZE = 8192;
+
+    private DaemonProtocol() {}
+
+    static final class Request {
+        final Charset charset;
+        final boolean isTerminal;
+        final String[] args;
+        Request(Charset charset, boolean isTerminal, String[] args) {
+            this.charset = charset;
+            this.isTerminal = isTerminal;
+            this.args = args;
+        }
+    }
+
+    /** Compute the name of the port file for a particular installation and set of options */
+    static Path portFile(Path cacheDir, Path libertyRoot, boolean includeBundles) {
+        return cacheDir.resolve("serve-" + Catalog.cacheKey(libertyRoot, includeBundles) + ".port");
+    }
+
+    static String newToken() {
+        var bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        var token = new StringBuilder();
+        for (byte b : bytes) token.append(String.format("%02x", b));
+        return token.toString();
+    }
+
+    /** Write the port file in full before moving it into place, so clients never see a partial file */
+    static void writePortFile(Path file, int port, String token) throws IOException {
+        Files.createDirectories(file.getParent());
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        FileAttribute<?>[] ownerOnly = posix ? new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))} : new FileAttribute<?>[0];
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp", ownerOnly);
+        try {
+            Files.write(tmp, List.of(Integer.toString(port), token), UTF_8);
+            Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * If a daemon is listening for the port file, have it run the command line.
+     * Returns the exit code, or nothing if no daemon could be reached, it did not accept the request in time,
+     * or its answer could not be understood.
+     */
+    static Optional<Integer> forward(Path portFile, String[] args, boolean isTerminal, PrintStream stdout, PrintStream stderr) {
+        final int port;
+        final String token;
+        try {
+            var lines = Files.readAllLines(portFile, UTF_8);
+            port = Integer.parseInt(lines.get(0));
+            token = lines.get(1);
+        } catch (IOException | RuntimeException e) {
+            // no daemon is running, or it is still starting up
+            return Optional.empty();
+        }
+        var socket = new Socket();
+        try (socket) {
+            try {
+                socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), CONNECT_TIMEOUT_MILLIS);
+            } catch (ConnectException e) {
+                // the daemon has stopped, leaving its port file behind
+                return Optional.empty();
+            }
+            socket.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+            var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            // the standard streams use the default charset, so ask for the output to be encoded the same way
+            writeRequest(out, token, Charset.defaultCharset(), isTerminal, args);
+            var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            readAccepted(in);
+            // the command may legitimately take a long time, and its output may already have been written
+            socket.setSoTimeout(0);
+            try {
+                return Optional.of(readResponse(in, stdout, stderr));
+            } catch (IOException e) {
+                stderr.println("ERROR: lx serve stopped before the command finished (" + e + ")");
+                return Optional.of(1);
+            }
+        } catch (SocketTimeoutException e) {
+            stderr.println("WARNING: lx serve did not accept the command in time, so running the command here");
+            return Optional.empty();
+        } catch (IOException e) {
+            // e.g. a daemon from another version of lx closed the connection
+            stderr.println("WARNING: could not use lx serve (" + e + "), so running the command here");
+            return Optional.empty();
+        }
+    }
+
+    static void writeRequest(DataOutputStream out, String token, Charset charset, boolean isTerminal, String[] args) throws IOException {
+        out.writeUTF(token);
+        out.writeInt(VERSION);
+        out.writeUTF(charset.name());
+        out.writeBoolean(isTerminal);
+        out.writeInt(args.length);
+        for (String arg : args) out.writeUTF(arg);
+        out.flush();
+    }
+
+    static Request readRequest(DataInputStream in, String token) throws IOException {
+        // compare in constant time, so the token cannot be guessed a character at a time
+        if (!MessageDigest.isEqual(token.getBytes(UTF_8), in.readUTF().getBytes(UTF_8))) throw new IOException("Invalid token");
+        int version = in.readInt();
+        if (version != VERSION) throw new IOException("Unsupported protocol version: " + version);
+        Charset charset = Charset.forName(in.readUTF());
+        boolean isTerminal = in.readBoolean();
+        var args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) args[i] = in.readUTF();
+        return new Request(charset, isTerminal, args);
+    }
+
+    /** Tell the client that the request has been read and the command is starting */
+    static void writeAccepted(DataOutputStream out) throws IOException {
+        synchronized (out) {
+            out.writeByte(ACCEPTED);
+            out.flush();
+        }
+    }
+
+    private static void readAccepted(DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        if (kind != ACCEPTED) throw new IOException("Unexpected frame type: " + kind);
+    }
+
+    /** Returns a stream that sends whatever is printed to it as frames of the given kind */
+    static PrintStream frames(DataOutputStream out, byte kind, Charset charset) {
+        return new PrintStream(new BufferedOutputStream(new FrameOutputStream(out, kind)), false, charset);
+    }
+
+    static void writeExit(DataOutputStream out, int exitCode) throws IOException {
+        synchronized (out) {
+            out.writeByte(EXIT);
+            out.writeInt(exitCode);
+            out.flush();
+        }
+    }
+
+    /** Copy the output frames of a response to the given streams as they arrive, returning the exit code */
+    static int readResponse(DataInputStream in, OutputStream stdout, OutputStream stderr) throws IOException {
+        var buffer = new byte[COPY_BUFFER_SIZE];
+        while (true) {
+            byte kind = in.readByte();
+            int length = in.readInt();
+            switch (kind) {
+                case STDOUT: copy(in, length, stdout, buffer); break;
+                case STDERR: copy(in, length, stderr, buffer); break;
+                case EXIT:
+                    stdout.flush();
+                    stderr.flush();
+                    return length;
+                default: throw new IOException("Unknown frame type: " + kind);
+            }
+        }
+    }
+
+    /** Copy a frame a buffer at a time, since a single write on the daemon can make a frame of any size */
+    private static void copy(DataInputStream in, int length, OutputStream out, byte[] buffer) throws IOException {
+        while (length > 0) {
+            int n = Math.min(length, buffer.length);
+            in.readFully(buffer, 0, n);
+            out.write(buffer, 0, n);
+            length -= n;
+        }
+        out.flush();
+    }
+
+    private static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+        private final byte kind;
+
+        FrameOutputStream(DataOutputStream out, byte kind) {
+            this.out = out;
+            this.kind = kind;
+        }
+
+        @Override
+        public void write(int b) throws IOException { write(new byte[]{(byte) b}, 0, 1); }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return;
+            // standard output and standard error share the connection
+            synchronized (out) {
+                out.writeByte(kind);
+                out.writeInt(len);
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+}
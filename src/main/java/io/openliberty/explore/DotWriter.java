@@ -0,0 +1,113 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.inspect.Bundle;
+import io.openliberty.inspect.Element;
+import io.openliberty.inspect.feature.Feature;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Writes a dependency graph in DOT format as it is traversed, a buffer at a time,
+ * rather than building the whole document in memory first.
+ * The attribute list of each vertex depends only on the type of element, its visibility,
+ * whether it is an auto-feature and whether it is a primary result,
+ * so every combination is formatted once, up front.
+ */
+final class DotWriter {
+    private static final int BUFFER_SIZE = 8192;
+    private static final String SUBJECT_FILL_COLOR = "gray95";
+    private static final String NL = System.lineSeparator();
+
+    @SuppressWarnings("unused")
+    private enum Shape {
+        PUBLIC_FEATURE("tripleoctagon"),
+        PROTECTED_FEATURE("doubleoctagon"),
+        PRIVATE_FEATURE("octagon"),
+        UNKNOWN_FEATURE("egg"),
+        BUNDLE("cylinder");
+
+        // indexed by (primary ? 2 : 0) + (auto-feature ? 1 : 0)
+        private final String[] attributes = new String[4];
+
+        Shape(String shape) {
+            for (int i = 0; i < attributes.length; i++) {
+                boolean primary = (i & 2) != 0;
+                boolean auto = (i & 1) != 0;
+                String style = primary ? (auto ? "filled,bold,dashed" : "filled,bold") : (auto ? "dashed" : "");
+                attributes[i] = (primary ? " bgcolor=\"" + SUBJECT_FILL_COLOR + "\"" : "")
+                        + " shape=\"" + shape + "\""
+                        + " style=\"" + style + "\"";
+            }
+        }
+
+        static Shape of(Element element) {
+            if (element instanceof Feature) switch (element.visibility()) {
+                case PUBLIC: return PUBLIC_FEATURE;
+                case PROTECTED: return PROTECTED_FEATURE;
+                case PRIVATE: return PRIVATE_FEATURE;
+                case UNKNOWN: return UNKNOWN_FEATURE;
+            }
+            if (element instanceof Bundle) return BUNDLE;
+            throw new Error("Unknown element type: " + element.getClass());
+        }
+    }
+
+    private final PrintStream out;
+    private final Function<Element, String> ids;
+    private final Predicate<Element> isPrimary;
+    private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 256);
+
+    DotWriter(PrintStream out, Function<Element, String> ids, Predicate<Element> isPrimary) {
+        this.out = out;
+        this.ids = ids;
+        this.isPrimary = isPrimary;
+    }
+
+    void write(Graph<Element, DefaultEdge> graph) {
+        // each vertex id is needed once for the vertex and again for each of its edges
+        Map<Element, String> idCache = new HashMap<>();
+        append("digraph G {").append(NL);
+        for (Element e : graph.vertexSet()) {
+            String id = idCache.computeIfAbsent(e, ids);
+            int variant = (isPrimary.test(e) ? 2 : 0) + (e.isAutoFeature() ? 1 : 0);
+            append("  ").append(id).append(" [").append(Shape.of(e).attributes[variant]).append(" ];").append(NL);
+        }
+        for (Element source : graph.vertexSet()) {
+            String sourceId = idCache.get(source);
+            for (DefaultEdge edge : graph.outgoingEdgesOf(source)) {
+                append("  ").append(sourceId).append(" -> ").append(idCache.get(graph.getEdgeTarget(edge))).append(";").append(NL);
+            }
+        }
+        append("}").append(NL);
+        flush();
+    }
+
+    private StringBuilder append(String text) {
+        if (buffer.length() >= BUFFER_SIZE) flush();
+        return buffer.append(text);
+    }
+
+    private void flush() {
+        out.print(buffer);
+        out.flush();
+        buffer.setLength(0);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.inspect.Catalog;
+import io.openliberty.inspect.FeatureResolver;
+import io.openliberty.inspect.ServerConfig;
+import io.openliberty.inspect.feature.Feature;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/**
+ * Resolve the features of every server under one or more server roots, and report on them together.
+ * <p>
+ * Servers are found and their configurations read in parallel.
+ * Each server is resolved against the catalog of the installation it belongs to,
+ * which is loaded only once however many servers share it.
+ * Servers configuring the same features in the same installation are grouped into one configuration,
+ * which is resolved only once.
+ * <p>
+ * The report is written as one JSON object per line:
+ * a summary, then each distinct configuration, most common first, then each feature and how many servers use it.
+ */
+@Command(
+        name = "fleet",
+        description = "Resolve the features of every server under the given directories, and report how often each configuration and feature is used"
+)
+public class FleetCommand implements Callable<Integer> {
+    @ParentCommand
+    private LibertyExplorer explorer;
+
+    @Parameters(arity = "1..*", description = "Directories of servers (e.g. usr/servers), Liberty installations, or individual server directories")
+    List<Path> roots;
+
+    /** A server directory and the installation it runs from */
+    private static final class Server {
+        final Path dir;
+        final Path install;
+        ServerConfig config;
+
+        Server(Path dir, Path install) {
+            this.dir = dir;
+            this.install = install;
+        }
+    }
+
+    /** The servers that configure the same features in the same installation */
+    private static final class Configuration {
+        final String id;
+        final Path install;
+        final List<String> configured;
+        final List<Path> servers = new ArrayList<>();
+        FeatureResolver.Result result;
+
+        Configuration(String id, Path install, List<String> configured) {
+            this.id = id;
+            this.install = install;
+            this.configured = configured;
+        }
+    }
+
+    /** How often a feature is used across the fleet */
+    private static final class Usage {
+        int servers;
+        int configurations;
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(explorer.threads);
+        try {
+            List<Server> servers = inPool(pool, () -> roots.parallelStream()
+                    .flatMap(this::findServers)
+                    .distinct()
+                    .sorted()
+                    .map(dir -> new Server(dir, installOf(dir)))
+                    .collect(toUnmodifiableList()));
+            if (explorer.verbose) explorer.err.printf("Found %d servers in %d ms%n", servers.size(), elapsedMillis(start));
+            Map<Path, Catalog> catalogs = loadCatalogs(servers);
+            inPool(pool, () -> {
+                servers.parallelStream().forEach(s -> s.config = ServerConfig.read(s.dir, s.install));
+                return null;
+            });
+            // report warnings in a predictable order, whatever order the servers were read in
+            servers.forEach(s -> s.config.warnings().forEach(w -> explorer.err.println(s.config.path() + ": WARNING: " + w)));
+            Collection<Configuration> configurations = group(servers);
+            inPool(pool, () -> {
+                configurations.parallelStream().forEach(c -> c.result = catalogs.get(c.install).featureResolver().resolve(c.configured));
+                return null;
+            });
+            if (explorer.verbose) explorer.err.printf("Resolved %d servers in %d ms%n", servers.size(), elapsedMillis(start));
+            return report(servers.size(), (int) servers.stream().map(s -> s.install).distinct().count(), configurations);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Find the servers in a directory, which may itself be a server,
+     * a Liberty installation (whose servers are in <code>usr/servers</code>),
+     * or a directory whose subdirectories are servers.
+     */
+    private Stream<Path> findServers(Path root) {
+        Path dir = root.toAbsolutePath().normalize();
+        if (Files.isRegularFile(dir.resolve("server.xml"))) return Stream.of(dir);
+        if (Files.isDirectory(dir.resolve("usr/servers"))) dir = dir.resolve("usr/servers");
+        List<Path> dirs;
+        try (Stream<Path> paths = Files.list(dir)) {
+            dirs = paths.filter(p -> Files.isRegularFile(p.resolve("server.xml"))).collect(toUnmodifiableList());
+        } catch (IOException e) {
+            explorer.err.println("WARNING: Could not list servers in " + dir + ": " + e);
+            return Stream.empty();
+        }
+        return dirs.stream();
+    }
+
+    /** Returns the installation a server directory belongs to, or the one named on the command line if it is not in one */
+    private Path installOf(Path serverDir) {
+        // a server in an installation is in <install>/usr/servers/<name>
+        Path usr = serverDir.getParent().getParent();
+        if (null != usr && null != usr.getParent() && Files.isDirectory(usr.getParent().resolve("lib/features"))) return usr.getParent();
+        return explorer.libertyRoot.toAbsolutePath().normalize();
+    }
+
+    /** Load the catalog of each installation, one at a time, since each load already runs in parallel */
+    private Map<Path, Catalog> loadCatalogs(List<Server> servers) throws IOException {
+        Map<Path, Catalog> catalogs = new TreeMap<>();
+        // a daemon already has the catalog of its own installation
+        if (null != explorer.liberty) catalogs.put(explorer.libertyRoot.toAbsolutePath().normalize(), explorer.liberty);
+        for (Server s : servers) {
+            if (catalogs.containsKey(s.install)) continue;
+            long start = System.nanoTime();
+            catalogs.put(s.install, explorer.loadCatalog(s.install));
+            if (explorer.verbose) explorer.err.printf("Loaded %s in %d ms%n", s.install, elapsedMillis(start));
+        }
+        return catalogs;
+    }
+
+    /** Group the servers by installation and configured features, ignoring the order and case of the feature names */
+    private static Collection<Configuration> group(List<Server> servers) {
+        Map<String, Configuration> configurations = new HashMap<>();
+        for (Server s : servers) {
+            List<String> configured = s.config.features().stream()
+                    .map(String::toLowerCase)
+                    .sorted()
+                    .distinct()
+                    .collect(toUnmodifiableList());
+            String key = s.install + "\n" + String.join("\n", configured);
+            configurations.computeIfAbsent(key, k -> new Configuration(UUID.nameUUIDFromBytes(k.getBytes(UTF_8)).toString(), s.install, configured))
+                    .servers.add(s.config.path());
+        }
+        return configurations.values();
+    }
+
+    private int report(int serverCount, int installCount, Collection<Configuration> configurations) {
+        final PrintStream out = explorer.out;
+        List<Configuration> sorted = configurations.stream()
+                .sorted(comparing((Configuration c) -> -c.servers.size()).thenComparing(c -> c.id))
+                .collect(toUnmodifiableList());
+        Map<String, Usage> usage = new TreeMap<>();
+        int unresolved = 0;
+        for (Configuration c : sorted) {
+            if (!c.result.isResolved()) unresolved += c.servers.size();
+            for (Feature f : c.result.features()) {
+                Usage u = usage.computeIfAbsent(f.symbolicName(), k -> new Usage());
+                u.servers += c.servers.size();
+                u.configurations++;
+            }
+        }
+        out.println("{\"type\":\"summary\",\"servers\":" + serverCount
+                + ",\"installations\":" + installCount
+                + ",\"configurations\":" + configurations.size()
+                + ",\"features\":" + usage.size()
+                + ",\"unresolved\":" + unresolved + "}");
+        for (Configuration c : sorted) {
+            out.print("{\"type\":\"configuration\",\"id\":" + BatchCommand.quote(c.id));
+            out.print(",\"installation\":" + BatchCommand.quote(c.install.toString()));
+            out.print(",\"servers\":" + c.servers.size());
+            out.print(",\"configured\":" + array(c.configured.stream()));
+            out.print(",\"features\":" + array(c.result.features().stream().map(Feature::symbolicName)));
+            if (!c.result.unknown().isEmpty()) out.print(",\"unknown\":" + array(c.result.unknown().stream()));
+            if (!c.result.conflicts().isEmpty()) out.print(",\"conflicts\":" + array(c.result.conflicts().stream()));
+            out.print(",\"paths\":" + array(c.servers.stream().map(Path::toString)));
+            out.println("}");
+        }
+        usage.entrySet().stream()
+                .sorted(comparing((Map.Entry<String, Usage> e) -> -e.getValue().servers).thenComparing(Map.Entry::getKey))
+                .forEach(e -> out.println("{\"type\":\"feature\",\"name\":" + BatchCommand.quote(e.getKey())
+                        + ",\"servers\":" + e.getValue().servers
+                        + ",\"configurations\":" + e.getValue().configurations + "}"));
+        out.flush();
+        return 0 == unresolved ? 0 : 1;
+    }
+
+    private static String array(Stream<String> values) {
+        return values.map(BatchCommand::quote).collect(joining(",", "[", "]"));
+    }
+
+    private static long elapsedMillis(long start) { return (System.nanoTime() - start) / 1_000_000; }
+
+    private static <T> T inPool(ForkJoinPool pool, Supplier<T> task) {
+        // parallel streams use the pool of the task that runs the terminal operation
+        return pool.submit(task::get).join();
+    }
+}
@@ -12,71 +12,29 @@
  */
 package io.openliberty.explore;
 
-import io.openliberty.inspect.Bundle;
 import io.openliberty.inspect.Element;
-import io.openliberty.inspect.feature.Feature;
-import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.nio.Attribute;
-import org.jgrapht.nio.dot.DOTExporter;
 import picocli.CommandLine.Command;
 
-import java.io.StringWriter;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-import static org.jgrapht.nio.DefaultAttribute.createAttribute;
-
 @Command(
         name = "graph",
         description = "Produce a graph of selected features"
 )
 public class GraphCommand extends QueryCommand {
-    public static final Attribute SUBJECT_FILL_COLOR = createAttribute("gray95");
-
     GraphCommand() { super(DisplayOption.simple, false); }
 
     @Override
     String displayName(Element e) {
-        return '"'
-                + super.displayName(e).replaceAll("\\s", "\\\\n")
-                + '"';
-    }
-
-    void execute() {
-        var exporter = new DOTExporter<Element, DefaultEdge>(this::displayName);
-        exporter.setVertexAttributeProvider(this::getDotAttributes);
-        var writer = new StringWriter();
-        exporter.exportGraph(explorer().subgraph(), writer);
-        System.out.println(writer);
-    }
-
-    private static Attribute shape(Element element) {
-        if (element instanceof Feature) switch(element.visibility()) {
-            case PUBLIC: return createAttribute("tripleoctagon");
-            case PROTECTED: return createAttribute("doubleoctagon");
-            case PRIVATE: return createAttribute("octagon");
-            case UNKNOWN: return createAttribute("egg");
+        String name = super.displayName(e);
+        var quoted = new StringBuilder(name.length() + 2).append('"');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) quoted.append("\\n");
+            else quoted.append(c);
         }
-        if (element instanceof Bundle)
-            return createAttribute("cylinder");
-        throw new Error("Unknown element type: " + element.getClass());
+        return quoted.append('"').toString();
     }
 
-    private Map<String, Attribute> getDotAttributes(Element element) {
-        List<String> styles = new ArrayList<>();
-        Map<String, Attribute> result = new HashMap<>();
-        result.put("shape", shape(element));
-        if (explorer().isPrimary(element)) {
-            result.put("bgcolor", SUBJECT_FILL_COLOR);
-            styles.add("filled");
-            styles.add("bold");
-        }
-        if (element.isAutoFeature()) {
-            styles.add("dashed");
-        }
-        result.put("style", createAttribute(String.join(",", styles)));
-        return result;
+    void execute() {
+        new DotWriter(explorer().out, this::displayName, explorer()::isPrimary).write(explorer().subgraph());
     }
 }
@@ -14,34 +14,34 @@ package io.openliberty.explore;
 
 
 import io.openliberty.inspect.Catalog;
+import io.openliberty.inspect.CompactGraph.Subgraph;
 import io.openliberty.inspect.Element;
+import io.openliberty.inspect.NamePattern;
 import org.jgrapht.Graph;
 import org.jgrapht.GraphPath;
 import org.jgrapht.alg.shortestpath.AllDirectedPaths;
-import org.jgrapht.graph.AsGraphUnion;
-import org.jgrapht.graph.AsSubgraph;
 import org.jgrapht.graph.DefaultEdge;
-import org.jgrapht.graph.EdgeReversedGraph;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.HelpCommand;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.PropertiesDefaultProvider;
 
+import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.file.Path;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import static io.openliberty.GraphCollectors.toUnionWith;
+import static io.openliberty.GraphCollectors.toUnionIn;
 import static io.openliberty.explore.LibertyExplorer.Direction.FORWARD;
 import static io.openliberty.explore.LibertyExplorer.Direction.REVERSE;
 import static java.util.Collections.emptySet;
-import static java.util.Collections.unmodifiableSet;
 import static java.util.Objects.requireNonNull;
-import static java.util.function.Predicate.not;
 import static java.util.stream.Collectors.toUnmodifiableList;
 import static java.util.stream.Collectors.toUnmodifiableSet;
 
@@ -49,16 +49,19 @@ import static java.util.stream.Collectors.toUnmodifiableSet;
         name = "lx",
         description = "Liberty installation eXplorer",
         version = "Liberty installation eXplorer 0.5",
-        subcommands = {ListCommand.class, GraphCommand.class, TreeCommand.class, HelpCommand.class},
+        subcommands = {ListCommand.class, GraphCommand.class, TreeCommand.class, BatchCommand.class, ResolveCommand.class, FleetCommand.class, SizeCommand.class, ServeCommand.class, HelpCommand.class},
         defaultValueProvider = PropertiesDefaultProvider.class
 )
 public class LibertyExplorer {
     public static final String INCLUDE_CONTAINED_BY_PREFIX = "**/";
     public static final String INCLUDE_CONTAINED_SUFFIX = "/**";
+    private static final BitSet NOTHING_EXCLUDED = new BitSet();
     private List<String> patterns;
+    private String[] commandLineArgs;
 
     public static void main(String[] args) {
         LibertyExplorer explorer = new LibertyExplorer();
+        explorer.commandLineArgs = args;
         CommandLine commandLine = new CommandLine(explorer);
         int exitCode = commandLine.execute(args);
         System.exit(exitCode);
@@ -77,53 +80,128 @@ public class LibertyExplorer {
             description = "Process bundles in the dependency analysis")
     boolean includeBundles;
 
+    @Option(names = "--threads",
+            description = "Number of threads used to parse the installation (defaults to the number of processors)")
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = "--cache",
+            negatable = true,
+            defaultValue = "true",
+            description = "Keep a snapshot of the parsed installation to speed up later invocations (enabled by default)")
+    boolean useCache;
+
+    @Option(names = "--cache-dir",
+            defaultValue = "${sys:user.home}/.cache/lx",
+            description = "Directory in which to keep snapshots (defaults to ${DEFAULT-VALUE})")
+    Path cacheDir;
+
+    @Option(names = "--interpolation",
+            description = "How to find the elements connecting the matched elements: ${COMPLETION-CANDIDATES} (defaults to ${DEFAULT-VALUE})")
+    Interpolation interpolation = Interpolation.paths;
+
+    @Option(names = "--daemon",
+            negatable = true,
+            defaultValue = "true",
+            description = "Forward queries to a running 'lx serve' for the same installation, if there is one (enabled by default)")
+    boolean useDaemon;
+
+    // set by the query command, since it affects the results
+    boolean provisionAutoFeatures;
+    // whether the output goes to a terminal, which for a daemon is the client's terminal
+    boolean isTerminal = null != System.console();
+
+    final PrintStream out;
+    final PrintStream err;
     Catalog liberty;
+    private final QueryCache queryCache;
+    // the ids of the elements removed from consideration by exclude queries
+    private BitSet excluded;
     private List<Query> queries;
-    private Set<Element> primaryMatches;
-    private Set<Element> interpolatedMatches;
-    private Graph<Element, DefaultEdge> subgraph;
+    private QueryCache.Results results;
+
+    public LibertyExplorer() {
+        this.out = System.out;
+        this.err = System.err;
+        this.queryCache = null;
+    }
+
+    /** Create an explorer that answers queries from an already loaded catalog, e.g. for a daemon */
+    LibertyExplorer(Catalog liberty, QueryCache queryCache, PrintStream out, PrintStream err) {
+        this.liberty = liberty;
+        this.out = out;
+        this.err = err;
+        this.queryCache = queryCache;
+    }
 
     boolean isPrimary(Element e) { return primaryResults().contains(e); }
 
     void init(List<String> patterns) throws Exception {
-        liberty = new Catalog(libertyRoot, includeBundles);
-        if (verbose) System.err.println("Patterns: " + patterns.stream().collect(Collectors.joining("' '", "'", "'")));
         this.patterns = patterns;
-        removeExcludedElements();
+        if (null == liberty) liberty = loadCatalog();
+        if (verbose) err.println("Patterns: " + patterns.stream().collect(Collectors.joining("' '", "'", "'")));
+        results = null == queryCache ? new QueryCache.Results() : queryCache.get(liberty.version(), interpolation, provisionAutoFeatures, patterns);
+    }
+
+    /**
+     * Returns the ids of the elements matched by the exclude queries, which the include queries then ignore.
+     * The catalog is shared, so rather than removing these elements from it, each query masks them out.
+     * They are found when a result is first computed, since cached results need no masking at all.
+     */
+    private BitSet excluded() {
+        if (null == excluded) excluded = findExcludedElements();
+        return excluded;
+    }
+
+    Catalog loadCatalog() throws IOException { return loadCatalog(libertyRoot); }
+
+    /** Load the catalog of another installation, with the same options as this one */
+    Catalog loadCatalog(Path root) throws IOException {
+        var catalog = new Catalog(root, includeBundles, threads, useCache ? cacheDir : null);
+        if (verbose) reportCatalogTimings(catalog);
+        return catalog;
+    }
+
+    /**
+     * If a daemon is serving this installation, have it run this command line instead.
+     * Returns the exit code, or nothing if the command should run here.
+     */
+    Optional<Integer> forwardToDaemon() {
+        // an explorer with a catalog already loaded is the daemon
+        if (!useDaemon || null == commandLineArgs || null != liberty) return Optional.empty();
+        return DaemonProtocol.forward(DaemonProtocol.portFile(cacheDir, libertyRoot, includeBundles), commandLineArgs, isTerminal, out, err);
     }
 
-    void removeExcludedElements() {
-        // remove excluded features (and associated edges) from graph
-        if (verbose) System.err.println("Exclude patterns:");
-        queries().stream()
+    private void reportCatalogTimings(Catalog catalog) {
+        catalog.timings().forEach((phase, time) -> err.printf("Catalog %s: %d ms%n", phase, time.toMillis()));
+        var graph = catalog.dependencyGraph();
+        int elements = graph.vertexSet().size();
+        int specs = graph.vertexSet().stream().mapToInt(Element::contentCount).sum();
+        // not measured: the cost of resolving each spec by comparing it against every element, as before the index
+        err.printf("Catalog has %d dependencies from %d content specs (estimated comparisons without the index: %d)%n",
+                graph.edgeSet().size(), specs, (long) specs * elements);
+    }
+
+    private BitSet findExcludedElements() {
+        if (verbose) err.println("Exclude patterns:");
+        return liberty.compactGraph().idsOf(queries().stream()
                 .filter(Query::isExcludeQuery)
                 .distinct()
-                .peek(q -> {if (verbose) System.err.println("\t" + q);} )
+                .peek(q -> {if (verbose) err.println("\t" + q);} )
                 .flatMap(Query::allMatches)
                 .distinct()
-                .peek(e -> {if (verbose) System.err.println("Excluding: " + e);})
-                .forEach(liberty::exclude);
-    }
-
-    private Set<Element> findConnectedEdges(Set<Element> features, Direction direction) {
-        // start with the initial set of features
-        var results = new HashSet<>(features);
-        var deps = unmodifiableSet(results);
-        var graph = direction == FORWARD ? liberty.dependencyGraph() : new EdgeReversedGraph<>(liberty.dependencyGraph());
-        while (!deps.isEmpty()) {
-            deps = deps.stream()
-                    // find the next level dependencies
-                    .map(graph::outgoingEdgesOf)
-                    .flatMap(Set::stream)
-                    .map(graph::getEdgeTarget)
-                    // filter out any that we already know about
-                    .filter(not(results::contains))
-                    .collect(toUnmodifiableSet());
-            results.addAll(deps);
-        }
-        return unmodifiableSet(results);
+                .peek(e -> {if (verbose) err.println("Excluding: " + e);})
+                .collect(toUnmodifiableList()));
     }
 
+    /** Find the elements connected to the given ones, without passing through any of the excluded elements */
+    private Set<Element> findConnectedEdges(Set<Element> features, Direction direction, BitSet excluded) {
+        var reachability = liberty.reachability();
+        return direction == FORWARD ? reachability.reachableFrom(features, excluded) : reachability.reaching(features, excluded);
+    }
+
+    /** Returns the element and everything it contains, directly or indirectly, ignoring the excluded elements */
+    Set<Element> contentsOf(Element e) { return findConnectedEdges(Set.of(e), FORWARD, excluded()); }
+
     private List<Query> queries() {
         requireNonNull(patterns,"Explorer not yet initialised with patterns.");
         if (null == queries) queries = patterns.stream().map(Query::new).collect(toUnmodifiableList());
@@ -131,58 +209,131 @@ public class LibertyExplorer {
     }
 
     Set<Element> primaryResults() {
-        if (null == primaryMatches) {
+        if (null == results.primaryMatches) {
             // find the initial set of elements (not including deps)
-            if (verbose) System.err.println("Include patterns:");
-            primaryMatches = queries().stream()
+            if (verbose) err.println("Include patterns:");
+            results.primaryMatches = queries().stream()
                     .filter(Query::isIncludeQuery)
-                    .peek(q -> {if (verbose) System.err.println("\t" + q);})
+                    .peek(q -> {if (verbose) err.println("\t" + q);})
                     .distinct()
                     .map(Query::initialMatches)
                     .flatMap(Set::stream)
                     .collect(toUnmodifiableSet());
         }
-        return primaryMatches;
+        return results.primaryMatches;
     }
 
     Set<Element> allResults() {
-        return queries().stream()
-                .filter(Query::isIncludeQuery)
-                .distinct()
-                .flatMap(Query::allMatches)
-                .collect(Collectors.toUnmodifiableSet());
+        if (null == results.allMatches) {
+            var matches = queries().stream()
+                    .filter(Query::isIncludeQuery)
+                    .distinct()
+                    .flatMap(Query::allMatches)
+                    .collect(Collectors.toUnmodifiableSet());
+            if (provisionAutoFeatures) {
+                // set before the matches they extend, so that they are there for anyone who sees the matches
+                results.autoFeatureMatches = findAutoFeatureResults(matches);
+                matches = union(matches, results.autoFeatureMatches);
+            }
+            results.allMatches = matches;
+        }
+        return results.allMatches;
+    }
+
+    /** Returns the elements added to the results by auto-features, if they were requested */
+    Set<Element> autoFeatureResults() {
+        allResults();
+        return results.autoFeatureMatches;
+    }
+
+    /**
+     * Find the auto-features the matched elements provision, along with everything they contain,
+     * and then any auto-features those provision in turn.
+     */
+    private Set<Element> findAutoFeatureResults(Set<Element> matches) {
+        var compact = liberty.compactGraph();
+        var provisioning = liberty.autoFeatures().provisioning();
+        var present = compact.idsOf(matches);
+        var added = new BitSet(compact.size());
+        for (var autoFeatures = provisioning.add(matches); !autoFeatures.isEmpty(); ) {
+            if (verbose) autoFeatures.forEach(f -> err.println("Provisioning: " + f));
+            var contents = compact.idsOf(findConnectedEdges(Set.copyOf(autoFeatures), FORWARD, excluded()));
+            contents.andNot(present);
+            present.or(contents);
+            added.or(contents);
+            autoFeatures = provisioning.add(compact.elementsOf(contents));
+        }
+        return compact.elementsOf(added);
+    }
+
+    private static Set<Element> union(Set<Element> a, Set<Element> b) {
+        return Stream.concat(a.stream(), b.stream()).collect(toUnmodifiableSet());
     }
 
+    /**
+     * Find every element that lies on a path from one primary result to another (including the primary results).
+     * By default, this is computed as the elements reachable from the primary results
+     * that can also reach a primary result, which takes linear time.
+     * That is the same set as the elements on all the simple paths between primary results,
+     * except where a cycle allows an element to be reached only by a path that revisits another element,
+     * e.g. an element on a cycle through one of the primary results.
+     */
     Set<Element> interpolatedResults() {
-        if (null == interpolatedMatches) interpolatedMatches = new AllDirectedPaths<>(liberty.dependencyGraph())
+        if (null == results.interpolatedMatches) results.interpolatedMatches = interpolation == Interpolation.paths ? allPathsResults() : reachableResults();
+        return results.interpolatedMatches;
+    }
+
+    private Set<Element> reachableResults() {
+        var compact = liberty.compactGraph();
+        var ids = compact.idsOf(findConnectedEdges(primaryResults(), FORWARD, excluded()));
+        ids.and(compact.idsOf(findConnectedEdges(primaryResults(), REVERSE, excluded())));
+        return compact.elementsOf(ids);
+    }
+
+    private Set<Element> allPathsResults() {
+        var compact = liberty.compactGraph();
+        var included = new BitSet(compact.size());
+        included.set(0, compact.size());
+        included.andNot(excluded());
+        return new AllDirectedPaths<>(compact.toGraph(included))
                 .getAllPaths(primaryResults(), primaryResults(), true, null)
                 .stream()
                 .map(GraphPath::getVertexList)
                 .flatMap(List::stream)
                 .collect(toUnmodifiableSet());
-        return interpolatedMatches;
     }
 
     Graph<Element, DefaultEdge> subgraph() {
-        if (null == subgraph) {
-            subgraph = new AsSubgraph<>(liberty.dependencyGraph(), interpolatedResults());
-            subgraph = queries().stream()
+        if (null == results.subgraph) {
+            var compact = liberty.compactGraph();
+            var querySubgraphs = queries().stream()
                     .filter(Query::isIncludeQuery)
-                    .peek(q -> {if (verbose) System.err.println("\t" + q);})
+                    .peek(q -> {if (verbose) err.println("\t" + q);})
                     .distinct()
-                    .map(Query::subgraph)
-                    .collect(toUnionWith(subgraph));
+                    .map(Query::subgraph);
+            var subgraphs = Stream.concat(Stream.of(compact.subgraph(compact.idsOf(interpolatedResults()))), querySubgraphs);
+            if (provisionAutoFeatures) subgraphs = Stream.concat(subgraphs, Stream.of(compact.subgraph(compact.idsOf(autoFeatureResults()))));
+            results.subgraph = subgraphs.collect(toUnionIn(compact));
         }
-        return subgraph;
+        return results.subgraph;
     }
 
     enum Direction {FORWARD, REVERSE}
 
+    @SuppressWarnings("unused")
+    enum Interpolation {
+        /** elements reachable from a primary result that can also reach a primary result */
+        reachable,
+        /** elements on a simple path between primary results (can be very slow for broad queries) */
+        paths
+    }
+
     private class Query {
         private final boolean isExcludeQuery;
         private final boolean includeContained;
         private final boolean includeContainedBy;
         private final String pattern;
+        private final NamePattern namePattern;
         private Set<Element> initialMatches;
         private Set<Element> contained;
         private Set<Element> containedBy;
@@ -195,13 +346,23 @@ public class LibertyExplorer {
             this.includeContained = pattern.endsWith(INCLUDE_CONTAINED_SUFFIX);
             var end = includeContained ? pattern.length() - INCLUDE_CONTAINED_SUFFIX.length() : pattern.length();
             this.pattern = pattern.substring(begin, end);
+            this.namePattern = NamePattern.compile(this.pattern);
         }
 
         boolean isExcludeQuery() { return isExcludeQuery; }
         boolean isIncludeQuery() { return !isExcludeQuery; }
 
+        /** Exclude queries consider every element, and include queries ignore those excluded */
+        BitSet mask() { return isExcludeQuery ? NOTHING_EXCLUDED : excluded(); }
+
         Set<Element> initialMatches() {
-            if (null == initialMatches) initialMatches = liberty.findMatches(this.pattern).collect(toUnmodifiableSet());
+            if (null == initialMatches) {
+                var compact = liberty.compactGraph();
+                var mask = mask();
+                initialMatches = liberty.findMatches(namePattern)
+                        .filter(e -> !mask.get(compact.id(e)))
+                        .collect(toUnmodifiableSet());
+            }
             return initialMatches;
         }
 
@@ -210,11 +371,9 @@ public class LibertyExplorer {
                     .flatMap(Set::stream);
         }
 
-        Graph<Element, DefaultEdge> subgraph() {
-            return new AsGraphUnion<>(
-                    new AsSubgraph<>(liberty.dependencyGraph(), contained()),
-                    new AsSubgraph<>(liberty.dependencyGraph(), containedBy())
-            );
+        Subgraph subgraph() {
+            var compact = liberty.compactGraph();
+            return compact.subgraph(compact.idsOf(contained())).addAll(compact.subgraph(compact.idsOf(containedBy())));
         }
 
         @Override
@@ -223,12 +382,12 @@ public class LibertyExplorer {
         }
 
         public Set<Element> contained() {
-            if (null == contained) contained = includeContained ? findConnectedEdges(initialMatches, FORWARD) : emptySet();
+            if (null == contained) contained = includeContained ? findConnectedEdges(initialMatches(), FORWARD, mask()) : emptySet();
             return contained;
         }
 
         public Set<Element> containedBy() {
-            if (null == containedBy) containedBy = includeContainedBy ? findConnectedEdges(initialMatches, REVERSE) : emptySet();
+            if (null == containedBy) containedBy = includeContainedBy ? findConnectedEdges(initialMatches(), REVERSE, mask()) : emptySet();
             return containedBy;
         }
     }
@@ -22,6 +22,6 @@ public class ListCommand extends QueryCommand {
     ListCommand() { super(DisplayOption.normal, true);}
 
     void execute() {
-        explorer().allResults().stream().map(this::displayName).sorted().forEach(System.out::println);
+        explorer().allResults().stream().map(this::displayName).sorted().forEach(explorer().out::println);
     }
 }
@@ -0,0 +1,71 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.explore.LibertyExplorer.Interpolation;
+import io.openliberty.inspect.Element;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/**
+ * The results of recent queries, shared by all the queries a long-running process answers.
+ * <p>
+ * Results are keyed by the set of patterns, regardless of their order or repetition,
+ * along with the interpolation mode, whether auto-features are provisioned, and the version of the catalog they were computed from.
+ * When a newer version of the catalog is seen, every older result is dropped.
+ * Once full, the least recently used results are dropped.
+ * <p>
+ * Each result is filled in as the commands using it need its parts,
+ * so a graph command can reuse the matches found by an earlier list command with the same patterns.
+ * Every part depends only on the key, so if two queries race to compute a part, either answer will do.
+ */
+final class QueryCache {
+    /** The results of one set of patterns, filled in as they are needed */
+    static final class Results {
+        volatile Set<Element> primaryMatches;
+        volatile Set<Element> interpolatedMatches;
+        volatile Set<Element> allMatches;
+        volatile Set<Element> autoFeatureMatches;
+        volatile Graph<Element, DefaultEdge> subgraph;
+    }
+
+    private final Map<List<Object>, Results> entries;
+    private long catalogVersion;
+
+    QueryCache(int capacity) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Results> eldest) { return size() > capacity; }
+        };
+    }
+
+    /** Returns the results for the given query, which will be empty if it has not been seen recently */
+    synchronized Results get(long catalogVersion, Interpolation interpolation, boolean provisionAutoFeatures, List<String> patterns) {
+        if (catalogVersion > this.catalogVersion) {
+            entries.clear();
+            this.catalogVersion = catalogVersion;
+        } else if (catalogVersion < this.catalogVersion) {
+            // a query still using an old version of the catalog, so keep its results to itself
+            return new Results();
+        }
+        var key = List.of(catalogVersion, interpolation, provisionAutoFeatures, patterns.stream().distinct().sorted().collect(toUnmodifiableList()));
+        return entries.computeIfAbsent(key, k -> new Results());
+    }
+}
@@ -35,6 +35,10 @@ abstract class QueryCommand implements Callable<Integer> {
 
     @Override
     public final Integer call() throws Exception {
+        if (requiresBundles()) explorer.includeBundles = true;
+        var forwarded = explorer.forwardToDaemon();
+        if (forwarded.isPresent()) return forwarded.get();
+        explorer.provisionAutoFeatures = provisionAutoFeatures;
         explorer.init(patterns);
         execute();
         return 0;
@@ -42,6 +46,9 @@ abstract class QueryCommand implements Callable<Integer> {
 
     abstract void execute() throws Exception;
 
+    /** Returns whether this command needs the bundles in the catalog, whether or not they were asked for */
+    boolean requiresBundles() { return false; }
+
     LibertyExplorer explorer() { return explorer; }
 
     @SuppressWarnings("unused")
@@ -70,8 +77,15 @@ abstract class QueryCommand implements Callable<Integer> {
             "\n\t [?] - unknown")
     private boolean scope;
 
-    private String prefix(Element e) {
-        if (!scope) return "";
+    @Option(names = "--auto-features", description = "Add the auto-features that the selected features would provision, with their contents")
+    private boolean provisionAutoFeatures;
+
+    /** Returns the scope marker for the element, or nothing if scope is not displayed */
+    String scopeMarker(Element e) {
+        return scope ? scopeOf(e) : "";
+    }
+
+    static String scopeOf(Element e) {
         if (e instanceof Bundle) return "[b] ";
         if (e.isAutoFeature()) return "[a] ";
         switch(e.visibility()) {
@@ -82,12 +96,11 @@ abstract class QueryCommand implements Callable<Integer> {
         }
     }
 
-    String moveScopeToStartOfString(String line) {
-        return line.replaceFirst("^(.*)(\\[[-ab+=?]\\] )", "$2$1");
+    String plainName(Element e) {
+        return display.getName(e);
     }
 
-
     String displayName(Element e) {
-        return prefix(e) + display.getName(e);
+        return scopeMarker(e) + plainName(e);
     }
 }
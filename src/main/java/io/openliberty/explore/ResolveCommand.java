@@ -0,0 +1,79 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.explore.QueryCommand.DisplayOption;
+import io.openliberty.inspect.Catalog;
+import io.openliberty.inspect.FeatureResolver;
+import io.openliberty.inspect.ServerConfig;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.ParentCommand;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Resolve the features configured by one or more servers into the features each would run.
+ * The catalog remembers what it has resolved, so servers that configure the same features cost little more than one.
+ */
+@Command(
+        name = "resolve",
+        description = "List the features a server would run, given its server.xml"
+)
+public class ResolveCommand implements Callable<Integer> {
+    @ParentCommand
+    private LibertyExplorer explorer;
+
+    @Parameters(arity = "1..*", description = "server.xml files, or the server directories containing them")
+    List<Path> servers;
+
+    @Option(names = "--display", description = "Control how features are displayed: ${COMPLETION-CANDIDATES}")
+    DisplayOption display = DisplayOption.normal;
+
+    @Option(names = "--scope",
+            negatable = true,
+            defaultValue = "true",
+            description = "Display the scope of each feature (enabled by default)")
+    boolean scope;
+
+    @Override
+    public Integer call() throws Exception {
+        Catalog catalog = null == explorer.liberty ? explorer.loadCatalog() : explorer.liberty;
+        FeatureResolver resolver = catalog.featureResolver();
+        int exitCode = 0;
+        for (int i = 0; i < servers.size(); i++) {
+            var config = ServerConfig.read(servers.get(i), explorer.libertyRoot);
+            // name the server only if there is more than one
+            String source = servers.size() > 1 ? config.path() + ": " : "";
+            if (servers.size() > 1) {
+                if (i > 0) explorer.out.println();
+                explorer.out.println("==> " + config.path() + " <==");
+            }
+            config.warnings().forEach(w -> explorer.err.println(source + "WARNING: " + w));
+            if (explorer.verbose) explorer.err.println(source + "Configured features: " + String.join(", ", config.features()));
+            var result = resolver.resolve(config.features());
+            result.features().stream()
+                    .map(f -> (scope ? QueryCommand.scopeOf(f) : "") + display.getName(f))
+                    .sorted()
+                    .forEach(explorer.out::println);
+            result.unknown().forEach(name -> explorer.err.println(source + "ERROR: No such feature: " + name));
+            result.conflicts().forEach(c -> explorer.err.println(source + "ERROR: " + c));
+            if (!result.isResolved()) exitCode = 1;
+        }
+        explorer.out.flush();
+        return exitCode;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.inspect.Catalog;
+import io.openliberty.inspect.CatalogWatcher;
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParentCommand;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Keep the catalog of an installation loaded, and answer the queries of other lx commands.
+ * Unix domain sockets need Java 16, so the daemon listens on a loopback TCP port instead.
+ */
+@Command(
+        name = "serve",
+        description = "Keep the catalog loaded and answer queries forwarded by other lx commands for the same installation"
+)
+public class ServeCommand implements Callable<Integer> {
+    @ParentCommand
+    private LibertyExplorer explorer;
+
+    @Option(names = "--port", description = "Loopback port on which to listen (defaults to any free port)")
+    int port;
+
+    @Option(names = "--watch",
+            negatable = true,
+            defaultValue = "true",
+            description = "Update the catalog when files in the installation change (enabled by default)")
+    boolean watch;
+
+    @Option(names = "--query-cache",
+            defaultValue = "100",
+            description = "Number of recent query results to keep for reuse, or 0 to keep none (defaults to ${DEFAULT-VALUE})")
+    int queryCacheSize;
+
+    @Override
+    public Integer call() throws Exception {
+        if (null != explorer.liberty) throw new Error("Already serving");
+        var catalog = explorer.loadCatalog();
+        var token = DaemonProtocol.newToken();
+        var queryCache = new QueryCache(queryCacheSize);
+        Path portFile = DaemonProtocol.portFile(explorer.cacheDir, explorer.libertyRoot, explorer.includeBundles);
+        ExecutorService workers = Executors.newFixedThreadPool(explorer.threads);
+        try (var server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+             var watcher = watch ? new CatalogWatcher(catalog, this::reportUpdate) : null) {
+            // each request uses whichever version of the catalog is current when it arrives
+            Supplier<Catalog> catalogs = null == watcher ? () -> catalog : watcher::current;
+            DaemonProtocol.writePortFile(portFile, server.getLocalPort(), token);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteQuietly(portFile)));
+            explorer.err.printf("Serving %s on port %d%n", explorer.libertyRoot.toAbsolutePath().normalize(), server.getLocalPort());
+            while (true) {
+                Socket socket = server.accept();
+                Catalog current = catalogs.get();
+                workers.execute(() -> handle(socket, current, queryCache, token));
+            }
+        } finally {
+            workers.shutdownNow();
+            deleteQuietly(portFile);
+        }
+    }
+
+    private void reportUpdate(Catalog catalog) {
+        if (explorer.verbose) catalog.timings().forEach((phase, time) -> explorer.err.printf("Catalog version %d %s: %d ms%n", catalog.version(), phase, time.toMillis()));
+    }
+
+    private void handle(Socket socket, Catalog catalog, QueryCache queryCache, String token) {
+        try (socket;
+             var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            var request = DaemonProtocol.readRequest(in, token);
+            DaemonProtocol.writeAccepted(out);
+            var stdout = DaemonProtocol.frames(out, DaemonProtocol.STDOUT, request.charset);
+            var stderr = DaemonProtocol.frames(out, DaemonProtocol.STDERR, request.charset);
+            var requestExplorer = new LibertyExplorer(catalog, queryCache, stdout, stderr);
+            requestExplorer.isTerminal = request.isTerminal;
+            var commandLine = new CommandLine(requestExplorer);
+            commandLine.setOut(new PrintWriter(stdout, true));
+            commandLine.setErr(new PrintWriter(stderr, true));
+            int exitCode = commandLine.execute(request.args);
+            stdout.flush();
+            stderr.flush();
+            DaemonProtocol.writeExit(out, exitCode);
+        } catch (IOException e) {
+            // the client went away, or did not present the token
+            if (explorer.verbose) explorer.err.println("Request abandoned: " + e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // a stale port file is ignored by clients once nothing is listening
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.inspect.Bundle;
+import io.openliberty.inspect.Element;
+import picocli.CommandLine.Command;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/**
+ * Report how many bytes of bundles each matched feature brings in, counting everything it contains.
+ * A bundle is exclusive to a feature if no other matched feature contains it, and shared otherwise.
+ * The file sizes are read once, in parallel, and kept in the catalog.
+ */
+@Command(
+        name = "size",
+        description = "Report the size of the bundles each matching feature contains, exclusively and shared with the other matching features"
+)
+public class SizeCommand extends QueryCommand {
+    SizeCommand() { super(DisplayOption.normal, true); }
+
+    @Override
+    boolean requiresBundles() { return true; }
+
+    void execute() {
+        var explorer = explorer();
+        var compact = explorer.liberty.compactGraph();
+        long[] sizes = explorer.liberty.fileSizes();
+        List<Element> features = explorer.primaryResults().stream()
+                .filter(e -> !(e instanceof Bundle))
+                .sorted(comparing(this::plainName))
+                .collect(toUnmodifiableList());
+        // find the bundles of each feature, and count how many features contain each bundle
+        List<BitSet> bundles = new ArrayList<>();
+        int[] containers = new int[compact.size()];
+        BitSet all = new BitSet(compact.size());
+        for (Element f : features) {
+            BitSet ids = (BitSet) compact.idsOf(explorer.contentsOf(f)).clone();
+            ids.clear(compact.id(f));
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                if (compact.element(id) instanceof Bundle) containers[id]++;
+                else ids.clear(id);
+            }
+            bundles.add(ids);
+            all.or(ids);
+        }
+        final PrintStream out = explorer.out;
+        out.printf("%12s %12s %12s %8s  %s%n", "exclusive", "shared", "total", "bundles", "feature");
+        for (int i = 0; i < features.size(); i++) {
+            long exclusive = 0, shared = 0;
+            BitSet ids = bundles.get(i);
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                if (containers[id] == 1) exclusive += sizes[id];
+                else shared += sizes[id];
+            }
+            out.printf("%12d %12d %12d %8d  %s%n", exclusive, shared, exclusive + shared, ids.cardinality(), displayName(features.get(i)));
+        }
+        long total = all.stream().mapToLong(id -> sizes[id]).sum();
+        out.printf("%12s %12s %12d %8d  %s%n", "", "", total, all.cardinality(), "(all matching features)");
+        out.flush();
+    }
+}
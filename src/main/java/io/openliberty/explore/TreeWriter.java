@@ -0,0 +1,126 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.explore.TreeCommand.Style;
+import io.openliberty.inspect.Element;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/**
+ * Writes a dependency graph as a text tree, a line at a time, as it walks the graph depth first.
+ * The roots are the elements nothing else in the graph depends on.
+ * An element that has already been expanded is written again wherever it recurs,
+ * but marked as repeating rather than expanded again, which also stops cycles.
+ * The walk keeps its own stack, so very deep graphs do not overflow the call stack.
+ */
+final class TreeWriter {
+    private static final int BUFFER_SIZE = 8192;
+    private static final String NL = System.lineSeparator();
+    private static final String MULTIPLE_ROOTS = "Multiple root nodes found";
+    private static final String REPEATING = " (repeating)";
+    // the dark gray that the text-tree default color scheme drew the tree lines in
+    private static final String LINE_COLOR = "\u001b[90m";
+    private static final String RESET = "\u001b[0m";
+
+    /** The children of an element still to be written, and how to indent them */
+    private static final class Level {
+        final Iterator<Element> children;
+        final String indent;
+
+        Level(List<Element> children, String indent) {
+            this.children = children.iterator();
+            this.indent = indent;
+        }
+    }
+
+    private final PrintStream out;
+    private final Style style;
+    private final boolean useColor;
+    private final Function<Element, String> scopes;
+    private final Function<Element, String> names;
+    private final StringBuilder buffer = new StringBuilder(BUFFER_SIZE + 256);
+
+    /** The scope of each element is written at the start of its line, before the tree lines leading to it */
+    TreeWriter(PrintStream out, Style style, boolean useColor, Function<Element, String> scopes, Function<Element, String> names) {
+        this.out = out;
+        this.style = style;
+        this.useColor = useColor;
+        this.scopes = scopes;
+        this.names = names;
+    }
+
+    void write(Graph<Element, DefaultEdge> graph) {
+        List<Element> roots = graph.vertexSet().stream()
+                .filter(v -> graph.inDegreeOf(v) == 0)
+                .collect(toUnmodifiableList());
+        if (roots.isEmpty()) return;
+        Set<Element> expanded = new HashSet<>();
+        Deque<Level> stack = new ArrayDeque<>();
+        if (roots.size() == 1) {
+            Element root = roots.get(0);
+            append(scopes.apply(root)).append(names.apply(root)).append(NL);
+            expanded.add(root);
+            stack.push(new Level(children(graph, root), ""));
+        } else {
+            append(MULTIPLE_ROOTS).append(NL);
+            stack.push(new Level(roots, ""));
+        }
+        while (!stack.isEmpty()) {
+            Level level = stack.peek();
+            if (!level.children.hasNext()) {
+                stack.pop();
+                continue;
+            }
+            Element e = level.children.next();
+            boolean isLast = !level.children.hasNext();
+            List<Element> children = children(graph, e);
+            boolean isRepeat = !children.isEmpty() && !expanded.add(e);
+            append(scopes.apply(e));
+            if (useColor) buffer.append(LINE_COLOR);
+            buffer.append(level.indent).append(isLast ? style.lastJunction : style.junction);
+            if (useColor) buffer.append(RESET);
+            buffer.append(names.apply(e));
+            if (isRepeat) append(REPEATING);
+            append(NL);
+            if (!isRepeat && !children.isEmpty()) stack.push(new Level(children, level.indent + (isLast ? style.blankIndent : style.indent)));
+        }
+        flush();
+    }
+
+    private static List<Element> children(Graph<Element, DefaultEdge> graph, Element e) {
+        return graph.outgoingEdgesOf(e).stream().map(graph::getEdgeTarget).collect(toUnmodifiableList());
+    }
+
+    private StringBuilder append(String text) {
+        if (buffer.length() >= BUFFER_SIZE) flush();
+        return buffer.append(text);
+    }
+
+    private void flush() {
+        out.print(buffer);
+        out.flush();
+        buffer.setLength(0);
+    }
+}
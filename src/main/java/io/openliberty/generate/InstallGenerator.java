@@ -0,0 +1,231 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.generate;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Parameters;
+import picocli.CommandLine.Spec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Writes a synthetic Liberty installation, for scale testing lx against installations much larger than any real one.
+ * <p>
+ * Features come in families, each with one or more versions, e.g. <code>feature12-1.0</code> and <code>feature12-2.0</code>.
+ * The families are arranged in layers, and each feature depends on features in the next layer down,
+ * so the longest chain of dependencies is as long as the number of layers.
+ * Some dependencies tolerate the other versions of their family, and some point back up to an earlier layer, forming cycles.
+ * Bundles also come in families, with one major version each, and features depend on them through version ranges.
+ * The same options always produce the same installation.
+ */
+@Command(
+        name = "generate-install",
+        description = "Generate a synthetic Liberty installation for scale testing",
+        mixinStandardHelpOptions = true
+)
+public class InstallGenerator implements Callable<Integer> {
+    public static final String FEATURE_PREFIX = "com.ibm.websphere.appserver.";
+    public static final String BUNDLE_PREFIX = "com.ibm.ws.";
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new InstallGenerator()).execute(args));
+    }
+
+    @Spec
+    CommandSpec spec;
+
+    @Parameters(index = "0", description = "Directory in which to create the installation")
+    Path root;
+
+    @Option(names = "--features", description = "Number of features (defaults to ${DEFAULT-VALUE})")
+    int features = 10_000;
+
+    @Option(names = "--bundles", description = "Number of bundles (defaults to half the number of features)")
+    int bundles = -1;
+
+    @Option(names = "--fan-out", description = "Most features each feature depends on (defaults to ${DEFAULT-VALUE})")
+    int fanOut = 4;
+
+    @Option(names = "--bundle-fan-out", description = "Most bundles each feature depends on (defaults to ${DEFAULT-VALUE})")
+    int bundleFanOut = 3;
+
+    @Option(names = "--depth", description = "Number of layers of features, i.e. the longest chain of dependencies (defaults to ${DEFAULT-VALUE})")
+    int depth = 8;
+
+    @Option(names = "--cycles", description = "Fraction of features with a dependency back up to an earlier layer (defaults to ${DEFAULT-VALUE})")
+    double cycles = 0.01;
+
+    @Option(names = "--versions", description = "Most versions of each feature and bundle (defaults to ${DEFAULT-VALUE})")
+    int versions = 3;
+
+    @Option(names = "--tolerates", description = "Fraction of feature dependencies that tolerate other versions (defaults to ${DEFAULT-VALUE})")
+    double tolerates = 0.25;
+
+    @Option(names = "--auto-features", description = "Fraction of features that are auto-features (defaults to ${DEFAULT-VALUE})")
+    double autoFeatures = 0.02;
+
+    @Option(names = "--public-every", description = "Make every Nth feature family public (defaults to ${DEFAULT-VALUE})")
+    int publicEvery = 4;
+
+    @Option(names = "--seed", description = "Seed for the random choices (defaults to ${DEFAULT-VALUE})")
+    long seed = 1;
+
+    private Random random;
+    // the number of versions in each family, indexed by family
+    private int[] featureFamilies;
+    private int[] bundleFamilies;
+    // no more layers than families, so that none is empty
+    private int layers;
+
+    public static String featureName(int family, int version) { return "feature" + family + "-" + version + ".0"; }
+
+    public static String bundleName(int family) { return BUNDLE_PREFIX + "bundle" + family; }
+
+    @Override
+    public Integer call() throws IOException {
+        if (features < 1 || depth < 1 || versions < 1 || publicEvery < 1) throw new ParameterException(spec.commandLine(), "Sizes must be positive");
+        if (fanOut < 0 || bundleFanOut < 0) throw new ParameterException(spec.commandLine(), "Fan-out must not be negative");
+        random = new Random(seed);
+        featureFamilies = families(features);
+        bundleFamilies = families(bundles < 0 ? features / 2 : bundles);
+        layers = Math.min(depth, featureFamilies.length);
+        Path featureDir = Files.createDirectories(root.resolve("lib/features"));
+        for (int family = 0; family < bundleFamilies.length; family++) {
+            for (int version = 1; version <= bundleFamilies[family]; version++) writeBundle(root.resolve("lib"), family, version);
+        }
+        for (int family = 0; family < featureFamilies.length; family++) {
+            for (int version = 1; version <= featureFamilies[family]; version++) writeFeature(featureDir, family, version);
+        }
+        return 0;
+    }
+
+    /** Share out the given number of elements among families of between one and the maximum number of versions */
+    private int[] families(int count) {
+        List<Integer> sizes = new ArrayList<>();
+        for (int remaining = count; remaining > 0; ) {
+            int size = Math.min(remaining, 1 + random.nextInt(versions));
+            sizes.add(size);
+            remaining -= size;
+        }
+        return sizes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int layer(int family) { return (int) ((long) family * layers / featureFamilies.length); }
+
+    /** Pick a random family from the given range of layers */
+    private int familyInLayers(int firstLayer, int lastLayer) {
+        int first = (int) (((long) firstLayer * featureFamilies.length + layers - 1) / layers);
+        int end = (int) (((long) (lastLayer + 1) * featureFamilies.length + layers - 1) / layers);
+        return first + random.nextInt(end - first);
+    }
+
+    private void writeFeature(Path featureDir, int family, int version) throws IOException {
+        final String symbolicName = FEATURE_PREFIX + featureName(family, version);
+        final int layer = layer(family);
+        final boolean isAuto = random.nextDouble() < autoFeatures;
+        final boolean isPublic = !isAuto && family % publicEvery == 0;
+        List<String> content = new ArrayList<>();
+        if (layer + 1 < layers) {
+            for (int i = 0, n = random.nextInt(fanOut + 1); i < n; i++) content.add(featureDependency(familyInLayers(layer + 1, layer + 1)));
+        }
+        if (random.nextDouble() < cycles) {
+            int target = familyInLayers(0, layer);
+            if (target != family) content.add(featureDependency(target));
+        }
+        for (int i = 0, n = random.nextInt(bundleFanOut + 1); i < n && bundleFamilies.length > 0; i++) content.add(bundleDependency(random.nextInt(bundleFamilies.length)));
+
+        var manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("IBM-Feature-Version", "2");
+        attributes.putValue("Subsystem-ManifestVersion", "1.0");
+        attributes.putValue("Subsystem-SymbolicName", symbolicName
+                + "; visibility:=" + (isPublic ? "public" : "private")
+                + (featureFamilies[family] > 1 ? "; singleton:=true" : ""));
+        attributes.putValue("Subsystem-Version", version + ".0.0");
+        attributes.putValue("Subsystem-Type", "osgi.subsystem.feature");
+        attributes.putValue("Subsystem-Name", "Generated feature " + family + " version " + version);
+        if (isPublic) attributes.putValue("IBM-ShortName", featureName(family, version));
+        if (isAuto) attributes.putValue("IBM-Provision-Capability", provisionCapability(layer));
+        if (!content.isEmpty()) attributes.putValue("Subsystem-Content", String.join(",", content));
+        try (OutputStream out = Files.newOutputStream(featureDir.resolve(symbolicName + ".mf"))) {
+            manifest.write(out);
+        }
+    }
+
+    private String featureDependency(int family) {
+        int count = featureFamilies[family];
+        int preferred = 1 + random.nextInt(count);
+        String spec = FEATURE_PREFIX + featureName(family, preferred) + "; type=\"osgi.subsystem.feature\"";
+        if (count > 1 && random.nextDouble() < tolerates) {
+            List<String> others = new ArrayList<>();
+            for (int v = 1; v <= count; v++) if (v != preferred) others.add(v + ".0");
+            spec += "; ibm.tolerates:=\"" + String.join(",", others) + "\"";
+        }
+        return spec;
+    }
+
+    private String bundleDependency(int family) {
+        int count = bundleFamilies[family];
+        // either any version of the bundle, or one particular major version
+        int low = random.nextBoolean() ? 1 : 1 + random.nextInt(count);
+        int high = low == 1 ? count + 1 : low + 1;
+        return bundleName(family) + "; version=\"[" + low + "," + high + ")\"";
+    }
+
+    /** An auto-feature is provisioned when a feature from each of one or two families in the same layers is present */
+    private String provisionCapability(int layer) {
+        List<String> filters = new ArrayList<>();
+        for (int i = 0, n = 1 + random.nextInt(2); i < n; i++) {
+            int family = familyInLayers(layer, Math.min(layer + 1, layers - 1));
+            String identities = IntStream.rangeClosed(1, featureFamilies[family])
+                    .mapToObj(v -> "(osgi.identity=" + FEATURE_PREFIX + featureName(family, v) + ")")
+                    .collect(joining());
+            if (featureFamilies[family] > 1) identities = "(|" + identities + ")";
+            filters.add("osgi.identity; filter:=\"(&(type=osgi.subsystem.feature)" + identities + ")\"");
+        }
+        return String.join(",", filters);
+    }
+
+    private static void writeBundle(Path libDir, int family, int version) throws IOException {
+        String symbolicName = bundleName(family);
+        String versionString = version + ".0.0";
+        var manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Bundle-ManifestVersion", "2");
+        attributes.putValue("Bundle-SymbolicName", symbolicName + "; singleton:=true");
+        attributes.putValue("Bundle-Name", "Generated bundle " + family);
+        attributes.putValue("Bundle-Version", versionString);
+        try (var jar = new JarOutputStream(Files.newOutputStream(libDir.resolve(symbolicName + "_" + versionString + ".jar")), manifest)) {
+            jar.flush();
+        }
+    }
+}
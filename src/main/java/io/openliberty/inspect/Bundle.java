@@ -12,13 +12,18 @@
  */
 package io.openliberty.inspect;
 
+import io.openliberty.inspect.feature.WiringSpec;
+import io.openliberty.inspect.feature.WiringSpec.Kind;
 import org.osgi.framework.Version;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.jar.Attributes;
-import java.util.jar.JarFile;
-import java.util.jar.Manifest;
 import java.util.stream.Stream;
 
 import static org.osgi.framework.Constants.BUNDLE_NAME;
@@ -27,27 +32,61 @@ import static org.osgi.framework.Constants.BUNDLE_VERSION;
 
 public final class Bundle implements Element {
     private final Path path;
-    private final JarFile jar;
-    private final Manifest manifest;
-    private final Attributes attributes;
     private final String symbolicName;
     private final String name;
     private final Version version;
+    // the packages this bundle exports and imports, the bundles it requires, and its host if it is a fragment
+    private final List<WiringSpec> wiring;
 
     Bundle(Path path) {
         this.path = path;
         try {
-            this.jar = new JarFile(path.toFile());
-            this.manifest = jar.getManifest();
-            this.attributes = manifest.getMainAttributes();
-            this.symbolicName = attributes.getValue(BUNDLE_SYMBOLICNAME).replaceFirst(";.*","");
-            this.name = attributes.getValue(BUNDLE_NAME);
-            this.version = Version.parseVersion(attributes.getValue(BUNDLE_VERSION));
+            Map<String, String> headers = JarManifest.read(path, BUNDLE_SYMBOLICNAME, BUNDLE_NAME, BUNDLE_VERSION,
+                    Kind.EXPORT.header(), Kind.IMPORT.header(), Kind.REQUIRE.header(), Kind.HOST.header());
+            this.symbolicName = headers.get(BUNDLE_SYMBOLICNAME).replaceFirst(";.*","");
+            this.name = headers.get(BUNDLE_NAME);
+            this.version = Version.parseVersion(headers.get(BUNDLE_VERSION));
+            this.wiring = parseWiring(path, headers);
         } catch (Exception e) {
             throw new Error(e);
         }
     }
 
+    private static List<WiringSpec> parseWiring(Path path, Map<String, String> headers) {
+        List<WiringSpec> wiring = new ArrayList<>();
+        for (Kind kind : Kind.values()) {
+            String value = headers.get(kind.header());
+            if (null == value) continue;
+            try {
+                WiringSpec.parse(kind, value).forEach(wiring::add);
+            } catch (RuntimeException | Error e) {
+                // the bundle is still worth listing without this header
+                System.err.printf("WARNING: ignoring %s header of %s: %s%n", kind.header(), path.getFileName(), e.getMessage());
+            }
+        }
+        return List.copyOf(wiring);
+    }
+
+    /** Recreate a bundle previously saved with {@link #write(DataOutput)} */
+    Bundle(Path path, DataInput in) throws IOException {
+        this.path = path;
+        this.symbolicName = in.readUTF();
+        this.name = in.readBoolean() ? in.readUTF() : null;
+        this.version = Version.parseVersion(in.readUTF());
+        List<WiringSpec> wiring = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) wiring.add(new WiringSpec(in));
+        this.wiring = List.copyOf(wiring);
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeUTF(symbolicName);
+        out.writeBoolean(null != name);
+        if (null != name) out.writeUTF(name);
+        out.writeUTF(version.toString());
+        out.writeInt(wiring.size());
+        for (WiringSpec spec : wiring) spec.write(out);
+    }
+
     @Override
     public Path path() { return path; }
     @Override
@@ -62,6 +101,33 @@ public final class Bundle implements Element {
     public Version version() { return version; }
     @Override
     public Stream<String> aka() { return Stream.of(fileName()); }
+    /** Returns the packages this bundle exports */
+    public Stream<WiringSpec> exports() { return wiring.stream().filter(spec -> spec.kind() == Kind.EXPORT); }
+
+    /** Returns the imports, required bundles and fragment host through which this bundle is wired to others */
+    private Stream<WiringSpec> requirements() { return wiring.stream().filter(spec -> spec.kind() != Kind.EXPORT); }
+
+    @Override
+    public Stream<String> providedNames() {
+        return Stream.concat(Stream.of(symbolicName), exports().map(WiringSpec::name));
+    }
+
+    @Override
+    public int contentCount() { return (int) requirements().count(); }
+
+    @Override
+    public Stream<String> contentNames() { return requirements().map(WiringSpec::name); }
+
+    @Override
+    public Stream<Element> findDependencies(ResolutionIndex index) {
+        // a bundle may import a package it also exports, but needs no wire to itself
+        return requirements()
+                .map(spec -> spec.findBestMatch(index))
+                .flatMap(Optional::stream)
+                .filter(e -> e != this)
+                .distinct();
+    }
+
     @Override
     public int compareTo(Element o) { return o instanceof Bundle ? compareTo((Bundle) o) : 1;}
 
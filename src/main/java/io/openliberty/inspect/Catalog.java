@@ -13,12 +13,11 @@
 
 package io.openliberty.inspect;
 
+import io.openliberty.inspect.feature.AutoFeatures;
 import io.openliberty.inspect.feature.Feature;
 import org.apache.commons.collections4.Bag;
-import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.collections4.Trie;
 import org.apache.commons.collections4.bag.HashBag;
-import org.apache.commons.collections4.multimap.HashSetValuedHashMap;
 import org.apache.commons.collections4.trie.PatriciaTrie;
 import org.jgrapht.Graph;
 import org.jgrapht.graph.AsUnmodifiableGraph;
@@ -26,70 +25,282 @@ import org.jgrapht.graph.DefaultEdge;
 import org.jgrapht.graph.SimpleDirectedGraph;
 
 import java.io.IOException;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.Files.isDirectory;
 import static java.util.Comparator.comparing;
-import static java.util.Objects.requireNonNull;
+import static java.util.stream.Collectors.toUnmodifiableList;
+import static java.util.stream.Stream.concat;
 
 public class Catalog {
     public static SimpleDirectedGraph<Element, DefaultEdge> newGraph() {
         return new SimpleDirectedGraph<>(DefaultEdge.class);
     }
 
+    private final Path libertyRoot;
+    private final boolean includeBundles;
+    private final long version;
     private final Map<String, Element> elements = new HashMap<>();
-    // Wrap (downcased) feature names and shortnames as Path objects
-    // to allow use of java.nio.file.FileSystem's built-in glob matching
-    private final MultiValuedMap<Path, Element> index = new HashSetValuedHashMap<>();
+    // the elements by the file each was parsed from, in the same order as they are first parsed
+    private final Map<Path, Element> elementsByPath = new TreeMap<>();
+    // Index (downcased) feature names and shortnames in a trie
+    // so that patterns only need to visit names starting with their literal prefix
+    private final Trie<String, Set<Element>> index = new PatriciaTrie<>();
     private final SimpleDirectedGraph<Element, DefaultEdge> dependencies = newGraph();
+    private final Map<String, Duration> timings = new LinkedHashMap<>();
+    private CompactGraph compactGraph;
+    private Reachability reachability;
+    private FeatureResolver featureResolver;
+    private AutoFeatures autoFeatures;
+    private long[] fileSizes;
+
+    /** Returns a name identifying an installation and the options it was catalogued with, for naming files in a cache directory */
+    public static String cacheKey(Path libertyRoot, boolean includeBundles) {
+        var key = libertyRoot.toAbsolutePath().normalize() + (includeBundles ? "+bundles" : "");
+        return UUID.nameUUIDFromBytes(key.getBytes(UTF_8)).toString();
+    }
 
     public Catalog(Path libertyRoot, boolean includeBundles) throws IOException {
+        this(libertyRoot, includeBundles, 1, null);
+    }
+
+    /**
+     * Parse the features (and optionally the bundles) of a Liberty installation.
+     * When more than one thread is requested the manifests are parsed concurrently,
+     * but the results are always merged in sorted path order,
+     * so the resulting catalog does not depend on the number of threads.
+     * If a cache directory is provided, a snapshot of the catalog is kept there,
+     * and only files that have changed since the snapshot was taken are parsed.
+     */
+    public Catalog(Path libertyRoot, boolean includeBundles, int threads, Path cacheDir) throws IOException {
+        this.libertyRoot = libertyRoot;
+        this.includeBundles = includeBundles;
+        this.version = 0;
         validate(libertyRoot, "Not a valid directory: ");
-        Path libDir = validate(libertyRoot.resolve("lib"), "No lib subdirectory found: ");
-        // parse bundles
-        if (includeBundles) Files.list(libDir)
-                .filter(Files::isRegularFile)
-                .filter(p -> p.toString().endsWith(".jar"))
-                .map(Bundle::new)
-                .forEach(this::initElement);
-        Path featureDir = validate(libertyRoot.resolve("lib/features"), "No feature subdirectory found: ");
-        // parse feature manifests
-        Files.list(featureDir)
-                .filter(Files::isRegularFile)
-                .filter(p -> p.toString().endsWith(".mf"))
-                .map(Feature::new)
-                .forEach(this::initElement);
-        // add the features to the graph
-        elements.values().forEach(dependencies::addVertex);
-        // add the feature dependencies to the graph
-        elements.values().forEach(this::initDependencies);
+        Path libDir = validate(libDir(), "No lib subdirectory found: ");
+        Path featureDir = validate(featureDir(), "No feature subdirectory found: ");
+        List<Path> bundlePaths = includeBundles ? listFiles(libDir, ".jar") : List.of();
+        List<Path> featurePaths = listFiles(featureDir, ".mf");
+        Path snapshotFile = null == cacheDir ? null : Snapshot.file(cacheDir, libertyRoot, includeBundles);
+        Snapshot snapshot = null == snapshotFile ? Snapshot.EMPTY : Snapshot.load(snapshotFile, libertyRoot);
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            long start = System.nanoTime();
+            List<Snapshot.Stamp> stamps = inPool(pool, () -> parallelIf(pool, concat(bundlePaths.stream(), featurePaths.stream()).collect(toUnmodifiableList()))
+                    .map(Snapshot.Stamp::of)
+                    .collect(toUnmodifiableList()));
+            start = recordTiming("check files", start);
+            // parse bundles and feature manifests, unless they have not changed since the last snapshot
+            List<Element> parsed = inPool(pool, () -> parallelIf(pool, stamps)
+                    .map(s -> snapshot.find(s).orElseGet(() -> parse(s.path)))
+                    .collect(toUnmodifiableList()));
+            // merge them in a deterministic order
+            parsed.forEach(this::initElement);
+            start = recordTiming("parse", start);
+            if (snapshot.matches(stamps)) {
+                // nothing has changed, so the dependencies are still valid
+                for (int i = 0; i < snapshot.edgeCount(); i++) dependencies.addEdge(snapshot.edgeSource(i), snapshot.edgeTarget(i));
+                recordTiming("restore dependencies", start);
+                return;
+            }
+            var resolutionIndex = new ResolutionIndex(parsed);
+            start = recordTiming("index", start);
+            // find the dependencies of each element
+            List<Element> sources = List.copyOf(elements.values());
+            List<List<Element>> targets = inPool(pool, () -> parallelIf(pool, sources)
+                    .map(e -> e.findDependencies(resolutionIndex).collect(toUnmodifiableList()))
+                    .collect(toUnmodifiableList()));
+            // add the dependencies to the graph
+            for (int i = 0; i < sources.size(); i++) {
+                Element e = sources.get(i);
+                targets.get(i).forEach(d -> dependencies.addEdge(e, d));
+            }
+            start = recordTiming("resolve dependencies", start);
+            if (null != snapshotFile) {
+                saveSnapshot(snapshotFile, libertyRoot, stamps, parsed);
+                recordTiming("save snapshot", start);
+            }
+        } finally {
+            if (null != pool) pool.shutdown();
+        }
+    }
+
+    private Catalog(Catalog original, long version) {
+        this.libertyRoot = original.libertyRoot;
+        this.includeBundles = original.includeBundles;
+        this.version = version;
+        elements.putAll(original.elements);
+        elementsByPath.putAll(original.elementsByPath);
+        // the sets in the index are never modified once the catalog is built
+        index.putAll(original.index);
+        original.dependencies.vertexSet().forEach(dependencies::addVertex);
+        original.dependencies.edgeSet().forEach(e -> dependencies.addEdge(original.dependencies.getEdgeSource(e), original.dependencies.getEdgeTarget(e), e));
+        timings.putAll(original.timings);
+    }
+
+    /**
+     * Returns a new version of this catalog, reflecting changes to the given files, which may have been added, modified or removed.
+     * Only those files are parsed, and only the elements with content specs that could refer to
+     * an added, modified or removed element have their dependencies resolved again.
+     * This catalog is left unchanged, so queries already using it are unaffected.
+     * A file that cannot be parsed, e.g. because it is still being written, keeps its previous element and dependencies.
+     */
+    public Catalog update(Collection<Path> changedFiles) {
+        long start = System.nanoTime();
+        var updated = new Catalog(this, version + 1);
+        Set<String> changedNames = new HashSet<>();
+        List<Element> added = new ArrayList<>();
+        for (Path file : new TreeSet<>(changedFiles)) {
+            Element e = null;
+            if (isCatalogued(file) && Files.isRegularFile(file)) {
+                try {
+                    e = parse(file);
+                } catch (RuntimeException | Error failure) {
+                    // the file may still be being written, in which case it will change again, so keep the old element until then
+                    System.err.println("WARNING: could not parse " + file + ": " + failure);
+                    continue;
+                }
+            }
+            Element old = updated.elementsByPath.get(file);
+            if (null != old) {
+                updated.removeElement(old);
+                old.providedNames().forEach(changedNames::add);
+            }
+            if (null == e) continue;
+            updated.addElement(e);
+            e.providedNames().forEach(changedNames::add);
+            added.add(e);
+        }
+        // resolve again the dependencies of the new elements, and of any element that might have referred to a changed one
+        var resolutionIndex = new ResolutionIndex(updated.elementsByPath.values());
+        Stream.concat(added.stream(), updated.elementsByPath.values().stream().filter(e -> e.contentNames().anyMatch(changedNames::contains)))
+                .distinct()
+                .forEach(e -> {
+                    updated.dependencies.removeAllEdges(List.copyOf(updated.dependencies.outgoingEdgesOf(e)));
+                    e.findDependencies(resolutionIndex).forEach(d -> updated.dependencies.addEdge(e, d));
+                });
+        updated.timings.clear();
+        updated.recordTiming("update", start);
+        return updated;
+    }
+
+    /** Check whether a file is of a kind that this catalog includes */
+    boolean isCatalogued(Path file) {
+        Path dir = file.getParent();
+        String name = file.getFileName().toString();
+        if (featureDir().equals(dir)) return name.endsWith(".mf");
+        return includeBundles && libDir().equals(dir) && name.endsWith(".jar");
+    }
+
+    Path libDir() { return libertyRoot.resolve("lib"); }
+
+    Path featureDir() { return libertyRoot.resolve("lib/features"); }
+
+    Map<Path, Element> elementsByPath() { return Collections.unmodifiableMap(elementsByPath); }
+
+    /** Returns a number that is incremented each time the catalog is updated */
+    public long version() { return version; }
+
+    private void addElement(Element e) {
+        elements.put(e.symbolicName(), e);
+        elementsByPath.put(e.path(), e);
+        dependencies.addVertex(e);
+        // the sets in the index are shared with older versions of the catalog, so replace rather than modify them
+        e.allNames()
+                .map(String::toLowerCase)
+                .forEach(k -> {
+                    Set<Element> set = new HashSet<>(index.getOrDefault(k, Set.of()));
+                    set.add(e);
+                    index.put(k, set);
+                });
+    }
+
+    private void removeElement(Element e) {
+        elements.remove(e.symbolicName(), e);
+        elementsByPath.remove(e.path());
+        dependencies.removeVertex(e);
+        e.allNames()
+                .map(String::toLowerCase)
+                .forEach(k -> {
+                    Set<Element> set = new HashSet<>(index.getOrDefault(k, Set.of()));
+                    set.remove(e);
+                    if (set.isEmpty()) index.remove(k);
+                    else index.put(k, set);
+                });
+    }
+
+    private long recordTiming(String phase, long start) {
+        long end = System.nanoTime();
+        timings.put(phase, Duration.ofNanos(end - start));
+        return end;
+    }
+
+    private void saveSnapshot(Path snapshotFile, Path libertyRoot, List<Snapshot.Stamp> stamps, List<Element> parsed) {
+        try {
+            Snapshot.save(snapshotFile, libertyRoot, stamps, parsed, dependencies);
+        } catch (IOException e) {
+            // the snapshot is only an optimisation, so carry on without it
+            System.err.println("WARNING: could not save catalog snapshot to " + snapshotFile + ": " + e);
+        }
+    }
+
+    private static Element parse(Path path) {
+        return path.toString().endsWith(".jar") ? new Bundle(path) : new Feature(path);
+    }
+
+    private static List<Path> listFiles(Path dir, String suffix) throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(p -> p.toString().endsWith(suffix))
+                    .sorted()
+                    .collect(toUnmodifiableList());
+        }
+    }
+
+    private static <T> Stream<T> parallelIf(ForkJoinPool pool, Collection<T> items) {
+        return null == pool ? items.stream() : items.parallelStream();
+    }
+
+    private static <T> T inPool(ForkJoinPool pool, Supplier<T> task) {
+        // parallel streams use the pool of the task that runs the terminal operation
+        return null == pool ? task.get() : pool.submit(task::get).join();
     }
 
     private void initElement(Element e) {
         // add to element map
         elements.put(e.symbolicName(), e);
+        elementsByPath.put(e.path(), e);
         // add to graph
         dependencies.addVertex(e);
         // add to index using full name and short name (if present)
         e.allNames()
                 .map(String::toLowerCase)
-                .map(Paths::get)
-                .forEach(k -> index.put(k, e));
+                .forEach(k -> index.computeIfAbsent(k, x -> new HashSet<>()).add(e));
     }
 
     public static void main(String[] args) throws Exception {
@@ -180,29 +391,79 @@ public class Catalog {
     }
 
 
-    private void initDependencies(Element e) {
-        e.findDependencies(elements.values())
-                .forEach(d -> dependencies.addEdge(e, d));
-    }
-
     private static Path validate(Path path, String errorMessage) {
         if (isDirectory(path)) return path;
         throw new Error(errorMessage + path.toFile().getAbsolutePath());
     }
 
-    public Stream<Element> findMatches(String pattern) {
-        pattern = requireNonNull(pattern).toLowerCase();
-        if (!pattern.contains(":")) pattern = "glob:" + pattern;
-        return index.keySet().stream()
-                .filter(FileSystems.getDefault().getPathMatcher(pattern)::matches)
-                .map(index::get)
+    /** Returns the element with the given symbolic name, if there is one */
+    public Optional<Element> find(String symbolicName) { return Optional.ofNullable(elements.get(symbolicName)); }
+
+    /**
+     * Find a feature the way a server configuration names it, i.e. by its short name or its symbolic name, ignoring case.
+     * Public features are preferred, since only they can be configured.
+     */
+    public Optional<Feature> findFeature(String name) {
+        return index.getOrDefault(name.toLowerCase(), Set.of()).stream()
+                .filter(Feature.class::isInstance)
+                .map(Feature.class::cast)
+                .min(comparing(Feature::visibility));
+    }
+
+    public Stream<Element> findMatches(String pattern) { return findMatches(NamePattern.compile(pattern)); }
+
+    public Stream<Element> findMatches(NamePattern pattern) {
+        return index.prefixMap(pattern.literalPrefix())
+                .entrySet()
+                .stream()
+                .filter(e -> pattern.matches(e.getKey()))
+                .map(Entry::getValue)
                 .flatMap(Collection::stream)
-                .filter(dependencies::containsVertex)
                 .sorted()
                 .distinct();
     }
 
+    /** Returns how long each phase of loading the catalog took */
+    public Map<String, Duration> timings() { return Collections.unmodifiableMap(timings); }
+
     public Graph<Element, DefaultEdge> dependencyGraph() { return new AsUnmodifiableGraph<>(dependencies); }
 
-    public void exclude(Element excluded) { dependencies.removeVertex(excluded); }
+    /** Returns the dependency graph in compact form, building it on first use */
+    public synchronized CompactGraph compactGraph() {
+        if (null == compactGraph) compactGraph = new CompactGraph(dependencies);
+        return compactGraph;
+    }
+
+    /** Returns the transitive closure of the dependency graph, computing it on first use */
+    public synchronized Reachability reachability() {
+        if (null == reachability) reachability = new Reachability(compactGraph());
+        return reachability;
+    }
+
+    /** Returns the auto-features of this catalog, indexed by the features they require, indexing them on first use */
+    public synchronized AutoFeatures autoFeatures() {
+        if (null == autoFeatures) autoFeatures = new AutoFeatures(elementsByPath.values());
+        return autoFeatures;
+    }
+
+    /**
+     * Returns the size in bytes of the file of each element, indexed by its id in the compact graph.
+     * The files are all read in one parallel pass on first use; any that cannot be read count as empty.
+     */
+    public synchronized long[] fileSizes() {
+        if (null == fileSizes) {
+            CompactGraph graph = compactGraph();
+            fileSizes = IntStream.range(0, graph.size())
+                    .parallel()
+                    .mapToLong(id -> Math.max(0, Snapshot.Stamp.of(graph.element(id).path()).size))
+                    .toArray();
+        }
+        return fileSizes.clone();
+    }
+
+    /** Returns the feature resolver for this catalog, which remembers the feature sets it has resolved */
+    public synchronized FeatureResolver featureResolver() {
+        if (null == featureResolver) featureResolver = new FeatureResolver(this);
+        return featureResolver;
+    }
 }
@@ -0,0 +1,121 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Keeps a catalog up to date as files are added to, changed in, or removed from the installation,
+ * e.g. when a fix pack or an iFix is applied.
+ * <p>
+ * Changes are collected until the directories have been quiet for a moment,
+ * and then applied with {@link Catalog#update(java.util.Collection)}.
+ * The new version of the catalog replaces the old one atomically,
+ * so each query sees a single consistent version, however long it runs.
+ * If a batch of changes cannot be applied, the current version is kept,
+ * and the batch is retried along with the next changes, since retrying it unchanged would fail the same way.
+ */
+public final class CatalogWatcher implements Closeable {
+    private static final long SETTLE_MILLIS = 200;
+    private final AtomicReference<Catalog> current;
+    private final Consumer<Catalog> listener;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    /** Start watching the installation of the given catalog, telling the listener about each new version */
+    public CatalogWatcher(Catalog catalog, Consumer<Catalog> listener) throws IOException {
+        this.current = new AtomicReference<>(catalog);
+        this.listener = listener;
+        this.watchService = catalog.featureDir().getFileSystem().newWatchService();
+        catalog.featureDir().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        catalog.libDir().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        this.thread = new Thread(this::run, "lx catalog watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Returns the latest version of the catalog */
+    public Catalog current() { return current.get(); }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void run() {
+        // the changes not yet applied, which are kept if applying them fails
+        Set<Path> changed = new HashSet<>();
+        boolean failing = false;
+        try {
+            while (true) {
+                // wait for a change, then keep collecting changes until there is a pause
+                WatchKey first = watchService.take();
+                for (WatchKey key = first; null != key; key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) {
+                    collectChanges(key, changed);
+                }
+                final Catalog updated;
+                try {
+                    updated = current.get().update(changed);
+                } catch (RuntimeException | Error e) {
+                    // keep serving the current version, and try again when something changes, e.g. the bad file is fixed
+                    if (!failing) System.err.println("WARNING: could not update the catalog, will retry when files change: " + e);
+                    failing = true;
+                    continue;
+                }
+                if (failing) System.err.println("Catalog updated after earlier failures");
+                failing = false;
+                changed.clear();
+                current.set(updated);
+                listener.accept(updated);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stop watching
+        }
+    }
+
+    private void collectChanges(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // some events were lost, so check every file
+                changed.addAll(current.get().elementsByPath().keySet());
+                try (Stream<Path> files = Files.list(dir)) {
+                    files.forEach(changed::add);
+                } catch (IOException e) {
+                    System.err.println("WARNING: could not list " + dir + ": " + e);
+                }
+            } else {
+                changed.add(dir.resolve((Path) event.context()));
+            }
+        }
+        key.reset();
+    }
+}
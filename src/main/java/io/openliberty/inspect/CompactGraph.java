@@ -0,0 +1,261 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable dependency graph held in compressed sparse row form.
+ * <p>
+ * Each element has a dense integer id.
+ * The dependencies of element <code>i</code> are the ids in <code>targets</code>
+ * from <code>offsets[i]</code> up to (but not including) <code>offsets[i + 1]</code>,
+ * and the dependents are held the same way in the reverse arrays.
+ * <p>
+ * Ids are allocated by strongly connected component,
+ * with the components in reverse topological order (dependencies before their dependents),
+ * so the members of component <code>k</code> are the ids
+ * from <code>componentStart[k]</code> up to (but not including) <code>componentStart[k + 1]</code>.
+ */
+public final class CompactGraph {
+    private final Element[] elements;
+    private final Map<Element, Integer> ids;
+    final int[] forwardOffsets;
+    final int[] forwardTargets;
+    // the original edge objects, in the same order as forwardTargets
+    private final DefaultEdge[] forwardEdges;
+    final int[] reverseOffsets;
+    final int[] reverseTargets;
+    final int[] componentOf;
+    final int[] componentStart;
+
+    CompactGraph(Graph<Element, DefaultEdge> graph) {
+        // number the vertices in an arbitrary order to find the components
+        Element[] vertices = graph.vertexSet().toArray(new Element[0]);
+        Map<Element, Integer> index = new HashMap<>();
+        for (int i = 0; i < vertices.length; i++) index.put(vertices[i], i);
+        DefaultEdge[][] edges = new DefaultEdge[vertices.length][];
+        int[][] adjacency = new int[vertices.length][];
+        for (int i = 0; i < vertices.length; i++) {
+            edges[i] = graph.outgoingEdgesOf(vertices[i]).toArray(new DefaultEdge[0]);
+            adjacency[i] = Arrays.stream(edges[i]).map(graph::getEdgeTarget).mapToInt(index::get).toArray();
+        }
+        // renumber the vertices in the order their components were completed
+        int[] order = new int[vertices.length];
+        this.componentStart = findComponents(adjacency, order);
+        int[] renumbered = new int[vertices.length];
+        for (int id = 0; id < order.length; id++) renumbered[order[id]] = id;
+
+        this.elements = new Element[vertices.length];
+        this.ids = new HashMap<>();
+        this.forwardOffsets = new int[vertices.length + 1];
+        this.forwardTargets = new int[Arrays.stream(adjacency).mapToInt(a -> a.length).sum()];
+        this.forwardEdges = new DefaultEdge[forwardTargets.length];
+        for (int id = 0; id < order.length; id++) {
+            elements[id] = vertices[order[id]];
+            ids.put(elements[id], id);
+            int offset = forwardOffsets[id];
+            for (int i = 0; i < adjacency[order[id]].length; i++, offset++) {
+                forwardTargets[offset] = renumbered[adjacency[order[id]][i]];
+                forwardEdges[offset] = edges[order[id]][i];
+            }
+            forwardOffsets[id + 1] = offset;
+        }
+        this.componentOf = new int[vertices.length];
+        for (int k = 0; k + 1 < componentStart.length; k++) Arrays.fill(componentOf, componentStart[k], componentStart[k + 1], k);
+        // invert the edges
+        this.reverseOffsets = new int[vertices.length + 1];
+        this.reverseTargets = new int[forwardTargets.length];
+        for (int t : forwardTargets) reverseOffsets[t + 1]++;
+        for (int id = 0; id < vertices.length; id++) reverseOffsets[id + 1] += reverseOffsets[id];
+        int[] next = Arrays.copyOf(reverseOffsets, vertices.length);
+        for (int s = 0; s < vertices.length; s++)
+            for (int i = forwardOffsets[s]; i < forwardOffsets[s + 1]; i++) reverseTargets[next[forwardTargets[i]]++] = s;
+    }
+
+    public int size() { return elements.length; }
+
+    public int edgeCount() { return forwardTargets.length; }
+
+    /** Returns the id of the element, or -1 if it is not in this graph */
+    public int id(Element e) { return ids.getOrDefault(e, -1); }
+
+    public Element element(int id) { return elements[id]; }
+
+    int componentCount() { return componentStart.length - 1; }
+
+    /** Returns the ids of those of the given elements that are in this graph */
+    public BitSet idsOf(Collection<Element> elements) {
+        if (elements instanceof ElementSet && ((ElementSet) elements).graph() == this) return ((ElementSet) elements).ids();
+        BitSet result = new BitSet(size());
+        for (Element e : elements) {
+            Integer id = ids.get(e);
+            if (null != id) result.set(id);
+        }
+        return result;
+    }
+
+    /** Returns a read-only view of the given ids as a set of elements, in id order */
+    public Set<Element> elementsOf(BitSet ids) { return new ElementSet(ids); }
+
+    /**
+     * Copy the part of this graph induced by the given ids into a JGraphT graph, e.g. for use by exporters.
+     * The edge objects are those of the graph this was built from.
+     */
+    public Graph<Element, DefaultEdge> toGraph(BitSet vertices) { return toGraph(subgraph(vertices)); }
+
+    /** Copy the selected vertices and edges into a JGraphT graph */
+    public Graph<Element, DefaultEdge> toGraph(Subgraph subgraph) {
+        var graph = Catalog.newGraph();
+        subgraph.vertices.stream().mapToObj(this::element).forEach(graph::addVertex);
+        subgraph.vertices.stream().forEach(s -> {
+            for (int i = subgraph.edges.nextSetBit(forwardOffsets[s]); i >= 0 && i < forwardOffsets[s + 1]; i = subgraph.edges.nextSetBit(i + 1)) {
+                graph.addEdge(elements[s], elements[forwardTargets[i]], forwardEdges[i]);
+            }
+        });
+        return graph;
+    }
+
+    /** Select the part of this graph induced by the given ids, i.e. those vertices and every edge between them */
+    public Subgraph subgraph(BitSet vertices) {
+        BitSet edges = new BitSet(edgeCount());
+        vertices.stream().forEach(s -> {
+            for (int i = forwardOffsets[s]; i < forwardOffsets[s + 1]; i++) if (vertices.get(forwardTargets[i])) edges.set(i);
+        });
+        return new Subgraph((BitSet) vertices.clone(), edges);
+    }
+
+    /**
+     * A selection of the vertices and edges of a compact graph, by id.
+     * The id of an edge is its position in the forward adjacency arrays.
+     * Selections of the same graph can be merged in place, so a union of many subgraphs stays flat.
+     */
+    public static final class Subgraph {
+        private final BitSet vertices;
+        private final BitSet edges;
+
+        private Subgraph(BitSet vertices, BitSet edges) {
+            this.vertices = vertices;
+            this.edges = edges;
+        }
+
+        /** Add the vertices and edges of the other selection to this one */
+        public Subgraph addAll(Subgraph that) {
+            vertices.or(that.vertices);
+            edges.or(that.edges);
+            return this;
+        }
+    }
+
+    /**
+     * Find the strongly connected components using Tarjan's algorithm (without recursion, to cope with deep graphs).
+     * The vertices are written into order, grouped by component, in the order the components were completed.
+     * Returns the start of each component in order, with an extra entry marking the end of the last one.
+     */
+    private static int[] findComponents(int[][] adjacency, int[] order) {
+        int n = adjacency.length;
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] edgePosition = new int[n];
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int[] callStack = new int[n];
+        int[] starts = new int[n + 1];
+        Arrays.fill(index, -1);
+        int sp = 0, csp = 0, counter = 0, components = 0, ordered = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) continue;
+            index[root] = low[root] = counter++;
+            stack[sp++] = root;
+            onStack[root] = true;
+            callStack[csp++] = root;
+            while (csp > 0) {
+                int v = callStack[csp - 1];
+                if (edgePosition[v] < adjacency[v].length) {
+                    int w = adjacency[v][edgePosition[v]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        callStack[csp++] = w;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                csp--;
+                if (csp > 0) low[callStack[csp - 1]] = Math.min(low[callStack[csp - 1]], low[v]);
+                if (low[v] != index[v]) continue;
+                // v is the root of a component: pop it
+                starts[components++] = ordered;
+                int w;
+                do {
+                    w = stack[--sp];
+                    onStack[w] = false;
+                    order[ordered++] = w;
+                } while (w != v);
+            }
+        }
+        starts[components] = ordered;
+        return Arrays.copyOf(starts, components + 1);
+    }
+
+    /** A read-only view of a bitset of element ids as a set of elements */
+    private final class ElementSet extends AbstractSet<Element> {
+        private final BitSet bits;
+        private final int size;
+
+        ElementSet(BitSet bits) {
+            this.bits = bits;
+            this.size = bits.cardinality();
+        }
+
+        CompactGraph graph() { return CompactGraph.this; }
+
+        BitSet ids() { return (BitSet) bits.clone(); }
+
+        @Override
+        public boolean contains(Object o) {
+            Integer id = o instanceof Element ? ids.get(o) : null;
+            return null != id && bits.get(id);
+        }
+
+        @Override
+        public int size() { return size; }
+
+        @Override
+        public Iterator<Element> iterator() {
+            return new Iterator<>() {
+                int next = bits.nextSetBit(0);
+                public boolean hasNext() { return next >= 0; }
+                public Element next() {
+                    if (next < 0) throw new NoSuchElementException();
+                    Element e = elements[next];
+                    next = bits.nextSetBit(next + 1);
+                    return e;
+                }
+            };
+        }
+    }
+}
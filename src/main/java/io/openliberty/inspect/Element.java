@@ -15,7 +15,6 @@ package io.openliberty.inspect;
 import org.osgi.framework.Version;
 
 import java.nio.file.Path;
-import java.util.Collection;
 import java.util.Objects;
 import java.util.stream.Stream;
 
@@ -50,5 +49,14 @@ public interface Element extends Comparable<Element> {
                 .replaceAll("_", " ");
     }
 
-    default Stream<Element> findDependencies(Collection<Element> elements) { return Stream.empty(); }
+    /** Returns the number of content specifications this element declares */
+    default int contentCount() { return 0; }
+
+    /** Returns the names by which content specifications of other elements could refer to this element */
+    default Stream<String> providedNames() { return Stream.of(symbolicName()); }
+
+    /** Returns the names the content specifications of this element could refer to, as given by other elements' {@link #providedNames()} */
+    default Stream<String> contentNames() { return Stream.empty(); }
+
+    default Stream<Element> findDependencies(ResolutionIndex index) { return Stream.empty(); }
 }
@@ -0,0 +1,227 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import io.openliberty.inspect.feature.AutoFeatures.Provisioning;
+import io.openliberty.inspect.feature.Feature;
+import io.openliberty.inspect.feature.FeatureSpec;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/**
+ * Resolves the features a server configures into the full set of features it would run.
+ * <p>
+ * Each feature brings in the features it contains, preferring the version each content spec names first,
+ * and falling back to the versions it tolerates.
+ * Only one version of a singleton feature may be resolved, so a spec that tolerates several versions
+ * is decided only once no other choice is left, and then takes any version already resolved.
+ * If a version chosen that way later conflicts with a version something else requires,
+ * resolution starts again with the required version chosen up front.
+ * Once the configured features are settled, any auto-features they provision are added, along with their contents,
+ * until no more are provisioned.
+ * This follows the preference order of the Liberty kernel resolver without its full backtracking search.
+ * <p>
+ * Results are remembered, both for each configured feature on its own and for each set of configured features.
+ * When the features of a set resolve to compatible versions on their own, their union is the answer,
+ * so servers sharing features share most of the work.
+ */
+public final class FeatureResolver {
+    /** The features a set of configured features resolves to, and any problems found */
+    public static final class Result {
+        private final Set<Feature> features;
+        private final List<String> unknown;
+        private final List<String> conflicts;
+
+        Result(Collection<Feature> features, List<String> unknown, List<String> conflicts) {
+            this.features = unmodifiableSet(features.stream().collect(toCollection(() -> new TreeSet<>(comparing(Feature::symbolicName)))));
+            this.unknown = List.copyOf(unknown);
+            this.conflicts = List.copyOf(conflicts);
+        }
+
+        /** Returns the resolved features in symbolic name order */
+        public Set<Feature> features() { return features; }
+        /** Returns the configured names that match no feature in the installation */
+        public List<String> unknown() { return unknown; }
+        /** Returns a description of each singleton feature that could not be resolved to a single version */
+        public List<String> conflicts() { return conflicts; }
+        public boolean isResolved() { return unknown.isEmpty() && conflicts.isEmpty(); }
+    }
+
+    private final Catalog catalog;
+    private final Map<Feature, Result> byRoot = new ConcurrentHashMap<>();
+    private final Map<List<Feature>, Result> byRoots = new ConcurrentHashMap<>();
+
+    FeatureResolver(Catalog catalog) { this.catalog = catalog; }
+
+    /** Resolve the named features, which may be given by short name or symbolic name, in any case */
+    public Result resolve(Collection<String> names) {
+        List<String> unknown = new ArrayList<>();
+        Set<Feature> roots = new TreeSet<>(comparing(Feature::symbolicName));
+        for (String name : names) {
+            Optional<Feature> feature = catalog.findFeature(name.strip());
+            if (feature.isPresent()) roots.add(feature.get());
+            else unknown.add(name);
+        }
+        Result result = byRoots.computeIfAbsent(List.copyOf(roots), this::resolveAll);
+        return unknown.isEmpty() ? result : new Result(result.features, unknown, result.conflicts);
+    }
+
+    private Result resolveAll(List<Feature> roots) {
+        // try combining the features each root resolves to on its own
+        Set<Feature> union = new LinkedHashSet<>();
+        boolean isConsistent = true;
+        for (Feature root : roots) {
+            Result result = byRoot.computeIfAbsent(root, r -> new Resolution(List.of(r)).resolve());
+            isConsistent &= result.conflicts.isEmpty();
+            union.addAll(result.features);
+        }
+        // the union must also already hold any auto-features its features provision together
+        if (isConsistent && singletonConflicts(union).isEmpty() && union.containsAll(catalog.autoFeatures().provisioning().add(union))) {
+            return new Result(union, List.of(), List.of());
+        }
+        return new Resolution(roots).resolve();
+    }
+
+    private static List<String> singletonConflicts(Collection<Feature> features) {
+        Map<String, Feature> byBaseName = new HashMap<>();
+        List<String> conflicts = new ArrayList<>();
+        for (Feature f : features) {
+            if (!f.isSingleton()) continue;
+            Feature other = byBaseName.putIfAbsent(baseName(f), f);
+            if (null != other) conflicts.add(conflict(other, f));
+        }
+        return conflicts;
+    }
+
+    private static String conflict(Feature chosen, Feature required) {
+        return "Conflicting versions of " + baseName(chosen) + ": " + chosen.symbolicName() + " and " + required.symbolicName();
+    }
+
+    /** Returns the symbolic name without its version, which all the versions of a feature share */
+    static String baseName(Feature feature) { return feature.symbolicName().replaceFirst("-\\d[\\d.]*$", ""); }
+
+    /** One attempt at resolving a set of features, with the versions of some singletons decided up front */
+    private final class Resolution {
+        private final List<Feature> roots;
+        // the versions to use for singletons with more than one acceptable version
+        private final Map<String, Feature> decided = new HashMap<>();
+
+        Resolution(List<Feature> roots) { this.roots = roots; }
+
+        Result resolve() {
+            while (true) {
+                var attempt = new Attempt();
+                attempt.run();
+                // retry if a version chosen among alternatives conflicts with a version required elsewhere
+                Optional<Feature> retry = attempt.conflicts.stream()
+                        .filter(required -> attempt.isAlternative(required) && !decided.containsKey(baseName(required)))
+                        .findFirst();
+                if (retry.isEmpty()) return new Result(attempt.resolved, List.of(), attempt.conflicts.stream()
+                        .map(required -> conflict(attempt.chosen.get(baseName(required)), required))
+                        .collect(toUnmodifiableList()));
+                decided.put(baseName(retry.get()), retry.get());
+            }
+        }
+
+        private final class Attempt {
+            final Set<Feature> resolved = new LinkedHashSet<>();
+            // the version of each singleton resolved so far
+            final Map<String, Feature> chosen = new HashMap<>();
+            // the alternatives a singleton's version was chosen from, if there were several
+            final Map<String, List<Feature>> alternatives = new HashMap<>();
+            // the singletons required in a version other than the one chosen
+            final Set<Feature> conflicts = new LinkedHashSet<>();
+            final Deque<Feature> work = new ArrayDeque<>();
+            final List<List<Feature>> postponed = new ArrayList<>();
+            final Provisioning provisioning = catalog.autoFeatures().provisioning();
+            final List<Feature> provisioned = new ArrayList<>();
+
+            void run() {
+                work.addAll(roots);
+                while (true) {
+                    while (!work.isEmpty()) add(work.pop());
+                    if (!postponed.isEmpty()) {
+                        // the remaining choices are free, so settle the first on its preferred version
+                        var candidates = postponed.remove(0);
+                        Optional<Feature> settled = chosenAmong(candidates);
+                        if (settled.isEmpty()) alternatives.putIfAbsent(baseName(candidates.get(0)), candidates);
+                        work.push(settled.orElse(candidates.get(0)));
+                    } else if (!provisioned.isEmpty()) {
+                        // auto-features only join once the features that provision them are settled
+                        work.addAll(provisioned);
+                        provisioned.clear();
+                    } else {
+                        return;
+                    }
+                }
+            }
+
+            boolean isAlternative(Feature required) {
+                return alternatives.getOrDefault(baseName(required), List.of()).contains(required);
+            }
+
+            private void add(Feature f) {
+                if (f.isSingleton()) {
+                    Feature other = chosen.putIfAbsent(baseName(f), f);
+                    if (null != other && !other.equals(f)) {
+                        conflicts.add(f);
+                        return;
+                    }
+                }
+                if (!resolved.add(f)) return;
+                provisioned.addAll(provisioning.add(List.of(f)));
+                f.featureSpecs().forEach(this::require);
+            }
+
+            private void require(FeatureSpec spec) {
+                List<Feature> candidates = spec.symbolicNames()
+                        .map(catalog::find)
+                        .flatMap(Optional::stream)
+                        .filter(Feature.class::isInstance)
+                        .map(Feature.class::cast)
+                        .collect(toUnmodifiableList());
+                if (candidates.isEmpty()) return;
+                Feature preferred = candidates.get(0);
+                if (candidates.size() == 1 || !preferred.isSingleton()) {
+                    work.push(preferred);
+                    return;
+                }
+                Optional<Feature> choice = Optional.ofNullable(decided.get(baseName(preferred)))
+                        .filter(candidates::contains)
+                        .or(() -> chosenAmong(candidates));
+                if (choice.isPresent()) work.push(choice.get());
+                else postponed.add(candidates);
+            }
+
+            private Optional<Feature> chosenAmong(List<Feature> candidates) {
+                return Optional.ofNullable(chosen.get(baseName(candidates.get(0)))).filter(candidates::contains);
+            }
+        }
+    }
+}
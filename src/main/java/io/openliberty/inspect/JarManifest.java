@@ -0,0 +1,183 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import io.openliberty.util.ManifestScanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads a few main attributes from the manifest of a jar, without opening it as a {@link JarFile}.
+ * <p>
+ * Opening a jar file reads and indexes its whole central directory, and checks for signatures.
+ * Instead, this finds the end of the central directory, reads directory entries only until it finds the manifest
+ * (which jar tools write first), and then reads just that entry, closing the file straight away.
+ * Only the requested headers are extracted from the manifest, using {@link ManifestScanner}.
+ * Jars this cannot handle, such as zip64 archives, are read with {@link JarFile} instead.
+ */
+final class JarManifest {
+    private static final String MANIFEST_NAME = "META-INF/MANIFEST.MF";
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int SHORT_TAIL = 1024;
+    private static final int ENTRY_SIGNATURE = 0x02014b50;
+    private static final int ENTRY_SIZE = 46;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_SIZE = 30;
+    private static final int DIRECTORY_CHUNK = 4096;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private JarManifest() {}
+
+    /** Returns the values of those of the named main attributes that are present, if the jar has a manifest */
+    static Map<String, String> read(Path jar, String... names) throws IOException {
+        byte[] manifest;
+        try (FileChannel channel = FileChannel.open(jar, READ)) {
+            manifest = findManifest(channel);
+        }
+        return null == manifest ? readWithJarFile(jar, names) : ManifestScanner.mainAttributes(manifest, List.of(names));
+    }
+
+    private static Map<String, String> readWithJarFile(Path jar, String... names) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            Manifest manifest = jarFile.getManifest();
+            if (null == manifest) return values;
+            Attributes attributes = manifest.getMainAttributes();
+            for (String name : names) {
+                String value = attributes.getValue(name);
+                if (null != value) values.put(name, value);
+            }
+        }
+        return values;
+    }
+
+    /** Returns the uncompressed manifest, empty if there is none, or null if it cannot be found this way */
+    private static byte[] findManifest(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < END_SIZE) return null;
+        // the end record is followed only by a comment, which is usually empty, so look near the end first
+        ByteBuffer tail = null;
+        int end = -1;
+        for (int tailSize : new int[]{SHORT_TAIL, END_SIZE + MAX_COMMENT_SIZE}) {
+            tailSize = (int) Math.min(size, tailSize);
+            tail = readFully(channel, size - tailSize, tailSize);
+            end = tailSize - END_SIZE;
+            while (end >= 0 && tail.getInt(end) != END_SIGNATURE) end--;
+            if (end >= 0 || tailSize == size) break;
+        }
+        if (end < 0) return null;
+        int entries = Short.toUnsignedInt(tail.getShort(end + 10));
+        long directorySize = Integer.toUnsignedLong(tail.getInt(end + 12));
+        long directoryOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+        // all ones mean the real values are in a zip64 record
+        if (entries == 0xFFFF || directoryOffset == 0xFFFFFFFFL || directoryOffset + directorySize > size) return null;
+
+        long position = directoryOffset;
+        long directoryEnd = directoryOffset + directorySize;
+        int i = 0;
+        while (i < entries && position < directoryEnd) {
+            ByteBuffer chunk = readFully(channel, position, (int) Math.min(DIRECTORY_CHUNK, directoryEnd - position));
+            int offset = 0;
+            // read whole entries from the chunk, then carry on from the first incomplete one
+            while (i < entries && offset + ENTRY_SIZE <= chunk.limit()) {
+                if (chunk.getInt(offset) != ENTRY_SIGNATURE) return null;
+                int nameLength = Short.toUnsignedInt(chunk.getShort(offset + 28));
+                int entryLength = ENTRY_SIZE + nameLength
+                        + Short.toUnsignedInt(chunk.getShort(offset + 30))
+                        + Short.toUnsignedInt(chunk.getShort(offset + 32));
+                if (offset + ENTRY_SIZE + nameLength > chunk.limit()) break;
+                if (isManifest(chunk, offset + ENTRY_SIZE, nameLength)) {
+                    return readEntry(channel,
+                            Short.toUnsignedInt(chunk.getShort(offset + 10)),
+                            Integer.toUnsignedLong(chunk.getInt(offset + 20)),
+                            Integer.toUnsignedLong(chunk.getInt(offset + 24)),
+                            Integer.toUnsignedLong(chunk.getInt(offset + 42)));
+                }
+                offset += entryLength;
+                i++;
+            }
+            if (offset == 0) return null;
+            position += offset;
+        }
+        // having read the whole directory, the jar has no manifest
+        return i == entries ? new byte[0] : null;
+    }
+
+    private static boolean isManifest(ByteBuffer chunk, int offset, int length) {
+        if (length != MANIFEST_NAME.length()) return false;
+        for (int i = 0; i < length; i++) {
+            // jar files find their manifest regardless of case
+            if (Character.toUpperCase((char) chunk.get(offset + i)) != MANIFEST_NAME.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static byte[] readEntry(FileChannel channel, int method, long compressedSize, long size, long localOffset) throws IOException {
+        if (compressedSize > Integer.MAX_VALUE || size > Integer.MAX_VALUE) return null;
+        ByteBuffer local = readFully(channel, localOffset, LOCAL_SIZE);
+        if (local.getInt(0) != LOCAL_SIGNATURE) return null;
+        // the local header may have different extra fields from the directory entry
+        long dataOffset = localOffset + LOCAL_SIZE + Short.toUnsignedInt(local.getShort(26)) + Short.toUnsignedInt(local.getShort(28));
+        ByteBuffer data = readFully(channel, dataOffset, (int) compressedSize);
+        switch (method) {
+            case STORED: return data.array();
+            case DEFLATED: return inflate(data.array(), (int) size);
+            default: return null;
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int size) throws IOException {
+        var inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            var bytes = new byte[size];
+            int length = 0;
+            while (length < size && !inflater.finished()) {
+                int n = inflater.inflate(bytes, length, size - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                length += n;
+            }
+            if (length != size) throw new IOException("Truncated manifest");
+            return bytes;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt manifest", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Unexpected end of file");
+        }
+        return buffer.flip();
+    }
+}
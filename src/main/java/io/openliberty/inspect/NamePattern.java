@@ -0,0 +1,189 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+import static java.util.regex.Pattern.UNICODE_CASE;
+
+/**
+ * A compiled, case-insensitive pattern for matching element names.
+ * Patterns use the same syntaxes as {@link java.nio.file.FileSystem#getPathMatcher(String)}:
+ * <code>glob:</code> (the default if no syntax is given) or <code>regex:</code>.
+ * The literal text at the start of the pattern (if any) is made available
+ * so that only names starting with that text need to be tested.
+ */
+public final class NamePattern {
+    private static final String GLOB_SYNTAX = "glob";
+    private static final String REGEX_SYNTAX = "regex";
+    private static final String REGEX_META_CHARS = ".^$+{[]|()*?\\";
+    private static final String GLOB_META_CHARS = "\\*?[{";
+    private static final char EOL = 0;
+
+    private final String source;
+    private final Pattern regex;
+    private final String literalPrefix;
+
+    private NamePattern(String source, Pattern regex, String literalPrefix) {
+        this.source = source;
+        this.regex = regex;
+        this.literalPrefix = literalPrefix;
+    }
+
+    public static NamePattern compile(String pattern) {
+        requireNonNull(pattern);
+        int colon = pattern.indexOf(':');
+        String syntax = colon < 0 ? GLOB_SYNTAX : pattern.substring(0, colon).toLowerCase();
+        String expr = pattern.substring(colon + 1);
+        switch (syntax) {
+            case GLOB_SYNTAX: return compileGlob(pattern, expr.toLowerCase());
+            case REGEX_SYNTAX: return new NamePattern(pattern, Pattern.compile(expr, CASE_INSENSITIVE | UNICODE_CASE), regexPrefix(expr).toLowerCase());
+            default: throw new UnsupportedOperationException("Syntax '" + syntax + "' not recognized");
+        }
+    }
+
+    /** Returns the text every matching (lower case) name must start with, which may be empty */
+    public String literalPrefix() { return literalPrefix; }
+
+    public boolean matches(String name) { return regex.matcher(name).matches(); }
+
+    @Override
+    public String toString() { return source; }
+
+    /** Translate a glob into a regular expression, following the rules of the default file system */
+    private static NamePattern compileGlob(String source, String glob) {
+        var regex = new StringBuilder("^");
+        boolean inGroup = false;
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i++);
+            switch (c) {
+                case '\\':
+                    if (i == glob.length()) throw new PatternSyntaxException("No character to escape", glob, i - 1);
+                    char next = glob.charAt(i++);
+                    if (isGlobMeta(next) || isRegexMeta(next)) regex.append('\\');
+                    regex.append(next);
+                    break;
+                case '[':
+                    i = translateBracket(glob, i, regex);
+                    break;
+                case '{':
+                    if (inGroup) throw new PatternSyntaxException("Cannot nest groups", glob, i - 1);
+                    regex.append("(?:(?:");
+                    inGroup = true;
+                    break;
+                case '}':
+                    regex.append(inGroup ? "))" : "}");
+                    inGroup = false;
+                    break;
+                case ',':
+                    regex.append(inGroup ? ")|(?:" : ",");
+                    break;
+                case '*':
+                    if (i < glob.length() && glob.charAt(i) == '*') {
+                        regex.append(".*");
+                        i++;
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                default:
+                    if (isRegexMeta(c)) regex.append('\\');
+                    regex.append(c);
+            }
+        }
+        if (inGroup) throw new PatternSyntaxException("Missing '}", glob, i - 1);
+        return new NamePattern(source, Pattern.compile(regex.append('$').toString()), globPrefix(glob));
+    }
+
+    /** Translate a bracket expression starting at index i, returning the index after it */
+    private static int translateBracket(String glob, int i, StringBuilder regex) {
+        // don't match the name separator in a class
+        regex.append("[[^/]&&[");
+        if (next(glob, i) == '^') {
+            regex.append("\\^");
+            i++;
+        } else {
+            if (next(glob, i) == '!') {
+                regex.append('^');
+                i++;
+            }
+            if (next(glob, i) == '-') {
+                regex.append('-');
+                i++;
+            }
+        }
+        boolean hasRangeStart = false;
+        char last = 0;
+        char c = 0;
+        while (i < glob.length()) {
+            c = glob.charAt(i++);
+            if (c == ']') break;
+            if (c == '/') throw new PatternSyntaxException("Explicit 'name separator' in class", glob, i - 1);
+            if (c == '\\' || c == '[' || c == '&' && next(glob, i) == '&') regex.append('\\');
+            regex.append(c);
+            if (c == '-') {
+                if (!hasRangeStart) throw new PatternSyntaxException("Invalid range", glob, i - 1);
+                if ((c = next(glob, i++)) == EOL || c == ']') break;
+                if (c < last) throw new PatternSyntaxException("Invalid range", glob, i - 3);
+                regex.append(c);
+                hasRangeStart = false;
+            } else {
+                hasRangeStart = true;
+                last = c;
+            }
+        }
+        if (c != ']') throw new PatternSyntaxException("Missing ']", glob, i - 1);
+        regex.append("]]");
+        return i;
+    }
+
+    private static char next(String glob, int i) { return i < glob.length() ? glob.charAt(i) : EOL; }
+
+    private static String globPrefix(String glob) {
+        var prefix = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '\\' && i + 1 < glob.length()) c = glob.charAt(++i);
+            else if (isGlobMeta(c)) break;
+            prefix.append(c);
+        }
+        return prefix.toString();
+    }
+
+    /** Find the literal text at the start of a regular expression, erring on the side of finding too little */
+    private static String regexPrefix(String regex) {
+        // any top-level alternative could start with anything
+        if (regex.indexOf('|') >= 0) return "";
+        var prefix = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i++);
+            if (c == '\\' && isRegexMeta(next(regex, i))) c = regex.charAt(i++);
+            else if (!Character.isLetterOrDigit(c) && "-_ ,:;=@#%&'\"<>/!~`".indexOf(c) < 0) break;
+            // a quantified character may not be present at all
+            if ("?*{".indexOf(next(regex, i)) >= 0) break;
+            prefix.append(c);
+        }
+        return prefix.toString();
+    }
+
+    private static boolean isGlobMeta(char c) { return GLOB_META_CHARS.indexOf(c) >= 0; }
+    private static boolean isRegexMeta(char c) { return c != EOL && REGEX_META_CHARS.indexOf(c) >= 0; }
+}
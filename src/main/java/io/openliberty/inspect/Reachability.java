@@ -0,0 +1,137 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * The transitive closure of a dependency graph, and of its reverse.
+ * <p>
+ * The closure of each strongly connected component is held as a bitset of element ids,
+ * shared by all the members of the component.
+ * Since the ids of a {@link CompactGraph} are allocated in reverse topological order,
+ * the forward closures only use the low-numbered bits, keeping their bitsets short.
+ * <p>
+ * Closures are computed on demand, and only for the components reachable from the elements asked about,
+ * so a query on a single feature does not pay for the whole graph.
+ * Once computed, a closure is reused, and a query over a set of elements is a union of bitsets.
+ * <p>
+ * A query may also mask out some elements, as if they had been removed from the graph.
+ * The closures cannot be used when a masked element lies within them, so the graph is searched instead.
+ */
+public final class Reachability {
+    private final CompactGraph graph;
+    private final BitSet[] forward;
+    private final BitSet[] reverse;
+
+    Reachability(CompactGraph graph) {
+        this.graph = graph;
+        this.forward = new BitSet[graph.componentCount()];
+        this.reverse = new BitSet[graph.componentCount()];
+    }
+
+    /** Returns the given elements and all the elements they depend on, directly or indirectly */
+    public Set<Element> reachableFrom(Collection<Element> sources) {
+        return graph.elementsOf(union(graph.idsOf(sources), forward, graph.forwardOffsets, graph.forwardTargets, true));
+    }
+
+    /** Returns the given elements and all the elements they depend on, without passing through any of the masked elements */
+    public Set<Element> reachableFrom(Collection<Element> sources, BitSet masked) {
+        return graph.elementsOf(maskedUnion(graph.idsOf(sources), masked, forward, graph.forwardOffsets, graph.forwardTargets, true));
+    }
+
+    /** Returns the given elements and all the elements that depend on them, directly or indirectly */
+    public Set<Element> reaching(Collection<Element> targets) {
+        return graph.elementsOf(union(graph.idsOf(targets), reverse, graph.reverseOffsets, graph.reverseTargets, false));
+    }
+
+    /** Returns the given elements and all the elements that depend on them, without passing through any of the masked elements */
+    public Set<Element> reaching(Collection<Element> targets, BitSet masked) {
+        return graph.elementsOf(maskedUnion(graph.idsOf(targets), masked, reverse, graph.reverseOffsets, graph.reverseTargets, false));
+    }
+
+    private BitSet maskedUnion(BitSet start, BitSet masked, BitSet[] closures, int[] offsets, int[] targets, boolean dependenciesFirst) {
+        start = (BitSet) start.clone();
+        start.andNot(masked);
+        BitSet unmasked = union(start, closures, offsets, targets, dependenciesFirst);
+        return unmasked.intersects(masked) ? search(start, masked, offsets, targets) : unmasked;
+    }
+
+    /** Find everything reachable from the start without visiting a masked element */
+    private BitSet search(BitSet start, BitSet masked, int[] offsets, int[] targets) {
+        BitSet visited = (BitSet) start.clone();
+        int[] stack = new int[graph.size()];
+        int sp = 0;
+        for (int id = start.nextSetBit(0); id >= 0; id = start.nextSetBit(id + 1)) stack[sp++] = id;
+        while (sp > 0) {
+            int v = stack[--sp];
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int t = targets[i];
+                if (visited.get(t) || masked.get(t)) continue;
+                visited.set(t);
+                stack[sp++] = t;
+            }
+        }
+        return visited;
+    }
+
+    private BitSet union(BitSet start, BitSet[] closures, int[] offsets, int[] targets, boolean dependenciesFirst) {
+        BitSet needed = new BitSet(closures.length);
+        start.stream().forEach(id -> needed.set(graph.componentOf[id]));
+        synchronized (closures) {
+            computeClosures(needed, closures, offsets, targets, dependenciesFirst);
+        }
+        BitSet result = new BitSet(graph.size());
+        needed.stream().forEach(k -> result.or(closures[k]));
+        return result;
+    }
+
+    /** Make sure the closures of the needed components (and hence their dependencies) are computed */
+    private void computeClosures(BitSet needed, BitSet[] closures, int[] offsets, int[] targets, boolean dependenciesFirst) {
+        int[] componentOf = graph.componentOf;
+        int[] componentStart = graph.componentStart;
+        // find the components without a closure that the needed components can reach
+        BitSet missing = new BitSet(closures.length);
+        int[] stack = new int[closures.length];
+        int sp = 0;
+        for (int k = needed.nextSetBit(0); k >= 0; k = needed.nextSetBit(k + 1)) {
+            if (null != closures[k] || missing.get(k)) continue;
+            missing.set(k);
+            stack[sp++] = k;
+            while (sp > 0) {
+                int c = stack[--sp];
+                for (int i = offsets[componentStart[c]]; i < offsets[componentStart[c + 1]]; i++) {
+                    int n = componentOf[targets[i]];
+                    if (null != closures[n] || missing.get(n)) continue;
+                    missing.set(n);
+                    stack[sp++] = n;
+                }
+            }
+        }
+        // components complete in reverse topological order, so process them in order for the forward closure
+        // and in reverse order for the reverse closure, so that each component's neighbours are always done first
+        int k = dependenciesFirst ? missing.nextSetBit(0) : missing.previousSetBit(closures.length - 1);
+        while (k >= 0) {
+            BitSet closure = new BitSet();
+            closure.set(componentStart[k], componentStart[k + 1]);
+            for (int i = offsets[componentStart[k]]; i < offsets[componentStart[k + 1]]; i++) {
+                int n = componentOf[targets[i]];
+                if (n != k) closure.or(closures[n]);
+            }
+            closures[k] = closure;
+            k = dependenciesFirst ? missing.nextSetBit(k + 1) : missing.previousSetBit(k - 1);
+        }
+    }
+}
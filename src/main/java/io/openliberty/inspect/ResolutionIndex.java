@@ -0,0 +1,117 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.collectingAndThen;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+import static org.osgi.framework.VersionRange.LEFT_OPEN;
+import static org.osgi.framework.VersionRange.RIGHT_CLOSED;
+
+/**
+ * Looks up elements by symbolic name, and bundles by the packages they export.
+ * The elements sharing a symbolic name, and the exporters of each package, are held in ascending version order,
+ * so the best match for a version range can be found by binary search.
+ */
+public final class ResolutionIndex {
+    private static final Comparator<Element> BY_VERSION = Comparator.comparing(Element::version);
+    private final Map<String, List<Element>> bySymbolicName;
+    private final Map<String, List<Export>> exportersByPackage;
+
+    /** A bundle exporting a package at a particular version */
+    private static final class Export {
+        final Version version;
+        final Bundle exporter;
+
+        Export(Version version, Bundle exporter) {
+            this.version = version;
+            this.exporter = exporter;
+        }
+    }
+
+    public ResolutionIndex(Collection<Element> elements) {
+        this.bySymbolicName = elements.stream()
+                .collect(groupingBy(Element::symbolicName, HashMap::new, collectingAndThen(toList(), ResolutionIndex::sort)));
+        this.exportersByPackage = elements.stream()
+                .filter(Bundle.class::isInstance)
+                .map(Bundle.class::cast)
+                .flatMap(b -> b.exports().map(spec -> Map.entry(spec.name(), new Export(spec.version(), b))))
+                .collect(groupingBy(Map.Entry::getKey, HashMap::new, mapping(Map.Entry::getValue, collectingAndThen(toList(), ResolutionIndex::sortExports))));
+    }
+
+    private static List<Element> sort(List<Element> list) {
+        // the sort is stable, so elements with equal versions stay in encounter order
+        list.sort(BY_VERSION);
+        return List.copyOf(list);
+    }
+
+    private static List<Export> sortExports(List<Export> list) {
+        list.sort(Comparator.comparing(x -> x.version));
+        return List.copyOf(list);
+    }
+
+    /** Returns all the elements with the given symbolic name, in ascending version order */
+    public List<Element> find(String symbolicName) { return bySymbolicName.getOrDefault(symbolicName, List.of()); }
+
+    /** Find the highest version of the given type of element with the given symbolic name within the given range */
+    public Optional<Element> findHighest(Class<? extends Element> type, String symbolicName, VersionRange range) {
+        var candidates = find(symbolicName);
+        // start from the last candidate not above the upper bound of the range
+        for (int i = upperBound(candidates, Element::version, range) - 1; i >= 0; i--) {
+            Element e = candidates.get(i);
+            if (isBelow(e.version(), range)) break;
+            if (type.isInstance(e) && range.includes(e.version())) return Optional.of(e);
+        }
+        return Optional.empty();
+    }
+
+    /** Find the bundle exporting the highest version of the given package within the given range */
+    public Optional<Element> findExporter(String packageName, VersionRange range) {
+        var exports = exportersByPackage.getOrDefault(packageName, List.of());
+        int i = upperBound(exports, x -> x.version, range) - 1;
+        if (i < 0 || isBelow(exports.get(i).version, range)) return Optional.empty();
+        return Optional.of(exports.get(i).exporter);
+    }
+
+    /** Returns the index of the first candidate above the range */
+    private static <T> int upperBound(List<T> candidates, Function<T, Version> version, VersionRange range) {
+        Version right = range.getRight();
+        if (null == right) return candidates.size();
+        int low = 0, high = candidates.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int c = version.apply(candidates.get(mid)).compareTo(right);
+            boolean above = c > 0 || (c == 0 && range.getRightType() != RIGHT_CLOSED);
+            if (above) high = mid;
+            else low = mid + 1;
+        }
+        return low;
+    }
+
+    private static boolean isBelow(Version version, VersionRange range) {
+        int c = version.compareTo(range.getLeft());
+        return c < 0 || (c == 0 && range.getLeftType() == LEFT_OPEN);
+    }
+}
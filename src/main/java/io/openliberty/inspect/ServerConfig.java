@@ -0,0 +1,198 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.util.Collections.unmodifiableSet;
+import static java.util.stream.Collectors.toUnmodifiableList;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+/**
+ * The features a server configures, read from its server.xml with a streaming parser.
+ * <p>
+ * As the server does, this reads the files in <code>configDropins/defaults</code> first,
+ * then server.xml and the files it includes, then the files in <code>configDropins/overrides</code>.
+ * The feature lists of all these files are merged, and a variable defined in more than one of them takes its last value.
+ * Include locations may use variables defined with <code>&lt;variable&gt;</code> elements,
+ * or the usual location variables such as <code>${server.config.dir}</code>.
+ * Only the feature lists are read; the rest of the configuration is skipped.
+ */
+public final class ServerConfig {
+    private static final XMLInputFactory XML_INPUT_FACTORY = newInputFactory();
+    private static final Pattern VARIABLE = Pattern.compile("\\$\\{([^}]*)}");
+    private static final int MAX_VARIABLE_DEPTH = 10;
+
+    private final Path serverXml;
+    private final Set<String> features = new LinkedHashSet<>();
+    private final List<String> warnings = new ArrayList<>();
+    private final Map<String, String> variables = new HashMap<>();
+    private final Set<Path> visited = new HashSet<>();
+
+    /** Read the configuration of a server, given its server.xml or the directory containing it */
+    public static ServerConfig read(Path server, Path libertyRoot) {
+        return new ServerConfig(Files.isDirectory(server) ? server.resolve("server.xml") : server, libertyRoot);
+    }
+
+    private ServerConfig(Path serverXml, Path libertyRoot) {
+        this.serverXml = serverXml;
+        Path serverDir = serverXml.toAbsolutePath().getParent();
+        Path userDir = libertyRoot.toAbsolutePath().resolve("usr");
+        variables.put("server.config.dir", serverDir.toString());
+        variables.put("server.output.dir", serverDir.toString());
+        variables.put("wlp.install.dir", libertyRoot.toAbsolutePath().toString());
+        variables.put("wlp.user.dir", userDir.toString());
+        variables.put("shared.config.dir", userDir.resolve("shared/config").toString());
+        variables.put("shared.app.dir", userDir.resolve("shared/apps").toString());
+        variables.put("shared.resource.dir", userDir.resolve("shared/resources").toString());
+        dropins(serverDir.resolve("configDropins/defaults"));
+        if (Files.isRegularFile(serverXml)) read(serverXml);
+        else warnings.add("No server configuration found: " + serverXml);
+        dropins(serverDir.resolve("configDropins/overrides"));
+    }
+
+    public Path path() { return serverXml; }
+
+    /** Returns the configured feature names, in the order they were first found */
+    public Set<String> features() { return unmodifiableSet(features); }
+
+    /** Returns a description of each part of the configuration that could not be read */
+    public List<String> warnings() { return List.copyOf(warnings); }
+
+    private void dropins(Path dir) {
+        if (!Files.isDirectory(dir)) return;
+        List<Path> files;
+        try (Stream<Path> paths = Files.list(dir)) {
+            files = paths.filter(p -> p.toString().endsWith(".xml")).sorted().collect(toUnmodifiableList());
+        } catch (IOException e) {
+            warnings.add("Could not list " + dir + ": " + e);
+            return;
+        }
+        files.forEach(this::read);
+    }
+
+    private void read(Path file) {
+        // include the same file at most once, which also stops include cycles
+        if (!visited.add(file.toAbsolutePath().normalize())) return;
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader xml = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                read(xml, file);
+            } finally {
+                xml.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            warnings.add("Could not read " + file + ": " + e.getMessage());
+        }
+    }
+
+    private void read(XMLStreamReader xml, Path file) throws XMLStreamException {
+        int depth = 0;
+        boolean inFeatureManager = false;
+        while (xml.hasNext()) {
+            switch (xml.next()) {
+                case START_ELEMENT:
+                    depth++;
+                    String name = xml.getLocalName();
+                    // the top-level elements of interest are children of <server>
+                    if (depth == 2 && "featureManager".equals(name)) {
+                        inFeatureManager = true;
+                    } else if (inFeatureManager && depth == 3 && "feature".equals(name)) {
+                        depth--;
+                        feature(xml.getElementText().strip());
+                    } else if (depth == 2 && "include".equals(name)) {
+                        include(xml.getAttributeValue(null, "location"), "true".equalsIgnoreCase(xml.getAttributeValue(null, "optional")), file);
+                    } else if (depth == 2 && "variable".equals(name)) {
+                        variable(xml.getAttributeValue(null, "name"), xml.getAttributeValue(null, "value"), xml.getAttributeValue(null, "defaultValue"));
+                    }
+                    break;
+                case END_ELEMENT:
+                    if (depth == 2) inFeatureManager = false;
+                    depth--;
+                    break;
+            }
+        }
+    }
+
+    /** A later value replaces an earlier one, as the files are read in order of precedence, but a default only applies if there is no value */
+    private void variable(String name, String value, String defaultValue) {
+        if (null == name) return;
+        if (null != value) variables.put(name, value);
+        else if (null != defaultValue) variables.putIfAbsent(name, defaultValue);
+    }
+
+    private void feature(String name) {
+        if (name.isEmpty()) return;
+        // features from product extensions, e.g. usr:myFeature-1.0, are not in the installation's catalog
+        if (name.contains(":")) warnings.add("Ignoring product extension feature: " + name);
+        else features.add(name);
+    }
+
+    private void include(String location, boolean optional, Path includingFile) {
+        if (null == location) return;
+        String expanded = expand(location);
+        if (null == expanded) {
+            warnings.add("Could not resolve include location: " + location);
+            return;
+        }
+        if (expanded.matches("^[a-zA-Z][a-zA-Z0-9+.-]+:/.*")) {
+            warnings.add("Ignoring remote include: " + location);
+            return;
+        }
+        Path file = includingFile.toAbsolutePath().getParent().resolve(expanded);
+        if (Files.isDirectory(file)) dropins(file);
+        else if (Files.isRegularFile(file)) read(file);
+        else if (!optional) warnings.add("Included file not found: " + location);
+    }
+
+    /** Replace the variables in a location, returning null if any is not known */
+    private String expand(String text) { return expand(text, 0); }
+
+    private String expand(String text, int depth) {
+        Matcher m = VARIABLE.matcher(text);
+        var result = new StringBuilder();
+        while (m.find()) {
+            String value = variables.get(m.group(1));
+            // the values of variables may refer to other variables, but not endlessly
+            if (null != value && depth < MAX_VARIABLE_DEPTH) value = expand(value, depth + 1);
+            if (null == value) return null;
+            m.appendReplacement(result, Matcher.quoteReplacement(value));
+        }
+        return m.appendTail(result).toString();
+    }
+
+    private static XMLInputFactory newInputFactory() {
+        var factory = XMLInputFactory.newFactory();
+        // server configurations have no need of DTDs, and must not cause files or URLs to be fetched
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
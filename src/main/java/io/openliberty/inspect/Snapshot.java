@@ -0,0 +1,186 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import io.openliberty.inspect.feature.Feature;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * A binary record of the parsed elements of a Liberty installation and the dependencies between them.
+ * Each element is stored with the path (relative to the installation),
+ * size and modification time of the file it was parsed from,
+ * so an element is only re-parsed when its file changes.
+ * The dependencies are only reused if every file is unchanged.
+ */
+final class Snapshot {
+    private static final int MAGIC = 0x4c584353; // "LXCS"
+    private static final int FORMAT_VERSION = 8;
+    private static final byte BUNDLE = 'B';
+    private static final byte FEATURE = 'F';
+    static final Snapshot EMPTY = new Snapshot(List.of(), new int[0]);
+
+    /** The identity of a file's contents, as far as we are prepared to check */
+    static final class Stamp {
+        final Path path;
+        final long size;
+        final long modified;
+
+        Stamp(Path path, long size, long modified) {
+            this.path = path;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        static Stamp of(Path path) {
+            try {
+                var attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                return new Stamp(path, attrs.size(), attrs.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                // the file may have been removed - make sure the stamp will never match
+                return new Stamp(path, -1, -1);
+            }
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Stamp)) return false;
+            Stamp that = (Stamp) other;
+            return this.size == that.size && this.modified == that.modified && this.path.equals(that.path);
+        }
+
+        @Override
+        public int hashCode() { return Objects.hash(path, size, modified); }
+    }
+
+    private static final class Entry {
+        final Stamp stamp;
+        final Element element;
+        Entry(Stamp stamp, Element element) {
+            this.stamp = stamp;
+            this.element = element;
+        }
+    }
+
+    private final List<Entry> entries;
+    private final Map<Stamp, Element> elementsByStamp = new HashMap<>();
+    // pairs of indexes into entries
+    private final int[] edges;
+
+    private Snapshot(List<Entry> entries, int[] edges) {
+        this.entries = entries;
+        this.edges = edges;
+        entries.forEach(e -> elementsByStamp.put(e.stamp, e.element));
+    }
+
+    /** Compute the name of the snapshot file for a particular installation and set of options */
+    static Path file(Path cacheDir, Path libertyRoot, boolean includeBundles) {
+        return cacheDir.resolve("catalog-" + Catalog.cacheKey(libertyRoot, includeBundles) + ".bin");
+    }
+
+    /** Load a snapshot, returning an empty snapshot if the file is missing, out of date, or corrupt. */
+    static Snapshot load(Path file, Path libertyRoot) {
+        if (!Files.isRegularFile(file)) return EMPTY;
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) return EMPTY;
+            var entries = new Entry[in.readInt()];
+            for (int i = 0; i < entries.length; i++) {
+                var stamp = new Stamp(libertyRoot.resolve(in.readUTF()), in.readLong(), in.readLong());
+                byte kind = in.readByte();
+                switch (kind) {
+                    case BUNDLE: entries[i] = new Entry(stamp, new Bundle(stamp.path, in)); break;
+                    case FEATURE: entries[i] = new Entry(stamp, new Feature(stamp.path, in)); break;
+                    default: return EMPTY;
+                }
+            }
+            var edges = new int[2 * in.readInt()];
+            for (int i = 0; i < edges.length; i++) edges[i] = in.readInt();
+            return new Snapshot(List.of(entries), edges);
+        } catch (IOException | RuntimeException e) {
+            return EMPTY;
+        }
+    }
+
+    /**
+     * Save the elements and the dependencies between them.
+     * The file is written in full before being moved into place,
+     * so concurrent readers never see a partial snapshot.
+     */
+    static void save(Path file, Path libertyRoot, List<Stamp> stamps, List<Element> elements, Graph<Element, DefaultEdge> graph) throws IOException {
+        Map<Element, Integer> indexes = new IdentityHashMap<>();
+        for (int i = 0; i < elements.size(); i++) indexes.put(elements.get(i), i);
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(elements.size());
+                for (int i = 0; i < elements.size(); i++) {
+                    var stamp = stamps.get(i);
+                    out.writeUTF(libertyRoot.relativize(stamp.path).toString());
+                    out.writeLong(stamp.size);
+                    out.writeLong(stamp.modified);
+                    var element = elements.get(i);
+                    if (element instanceof Bundle) {
+                        out.writeByte(BUNDLE);
+                        ((Bundle) element).write(out);
+                    } else {
+                        out.writeByte(FEATURE);
+                        ((Feature) element).write(out);
+                    }
+                }
+                out.writeInt(graph.edgeSet().size());
+                for (DefaultEdge edge : graph.edgeSet()) {
+                    out.writeInt(indexes.get(graph.getEdgeSource(edge)));
+                    out.writeInt(indexes.get(graph.getEdgeTarget(edge)));
+                }
+            }
+            Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    Optional<Element> find(Stamp stamp) { return Optional.ofNullable(elementsByStamp.get(stamp)); }
+
+    /** Check whether this snapshot was taken of exactly these files */
+    boolean matches(List<Stamp> stamps) {
+        if (stamps.size() != entries.size()) return false;
+        for (int i = 0; i < stamps.size(); i++) if (!stamps.get(i).equals(entries.get(i).stamp)) return false;
+        return true;
+    }
+
+    int edgeCount() { return edges.length / 2; }
+    Element edgeSource(int i) { return entries.get(edges[2 * i]).element; }
+    Element edgeTarget(int i) { return entries.get(edges[2 * i + 1]).element; }
+}
@@ -0,0 +1,116 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect.feature;
+
+import io.openliberty.inspect.Element;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Decides which auto-features a set of features provisions.
+ * <p>
+ * An auto-feature is provisioned once, for each filter in its <code>IBM-Provision-Capability</code> header,
+ * some feature in the set matches that filter.
+ * The filters of every auto-feature are compiled once, and indexed by the symbolic names they match,
+ * so adding a feature to a set only checks the filters that name it
+ * (and the few that do not restrict the feature's identity to a fixed set of names).
+ */
+public final class AutoFeatures {
+    /** One filter of an auto-feature */
+    private static final class Requirement {
+        final int id;
+        final int owner;
+        final CapabilityFilter filter;
+
+        Requirement(int id, int owner, CapabilityFilter filter) {
+            this.id = id;
+            this.owner = owner;
+            this.filter = filter;
+        }
+    }
+
+    private final List<Feature> autoFeatures = new ArrayList<>();
+    // the number of requirements of each auto-feature, by its index in autoFeatures
+    private final List<Integer> requirementCounts = new ArrayList<>();
+    private final Map<String, List<Requirement>> byIdentity = new HashMap<>();
+    private final List<Requirement> unindexed = new ArrayList<>();
+    private int requirementCount;
+
+    public AutoFeatures(Collection<? extends Element> elements) {
+        for (Element e : elements) {
+            if (!(e instanceof Feature) || !e.isAutoFeature()) continue;
+            Feature feature = (Feature) e;
+            List<CapabilityFilter> filters = new ArrayList<>();
+            try {
+                for (String filter : feature.provisionFilters()) filters.add(CapabilityFilter.compile(filter));
+            } catch (IllegalArgumentException ex) {
+                System.err.printf("WARNING: ignoring auto-feature %s: %s%n", feature.symbolicName(), ex.getMessage());
+                continue;
+            }
+            if (filters.isEmpty()) continue;
+            int owner = autoFeatures.size();
+            autoFeatures.add(feature);
+            requirementCounts.add(filters.size());
+            for (CapabilityFilter filter : filters) {
+                var requirement = new Requirement(requirementCount++, owner, filter);
+                Optional<Set<String>> identities = filter.identities();
+                if (identities.isPresent()) identities.get().forEach(name -> byIdentity.computeIfAbsent(name, k -> new ArrayList<>()).add(requirement));
+                else unindexed.add(requirement);
+            }
+        }
+    }
+
+    /** Start working out the auto-features provisioned by a set of features that will be built up incrementally */
+    public Provisioning provisioning() { return new Provisioning(); }
+
+    /** The state of the requirements of every auto-feature, for one growing set of features */
+    public final class Provisioning {
+        private final Set<Feature> present = new HashSet<>();
+        private final BitSet satisfied = new BitSet(requirementCount);
+        private final int[] unsatisfied = requirementCounts.stream().mapToInt(Integer::intValue).toArray();
+
+        private Provisioning() {}
+
+        /**
+         * Add features to the set, returning any auto-features that are provisioned as a result.
+         * Each auto-feature is returned only once, even if it is not then added to the set.
+         * Elements other than features are ignored.
+         */
+        public List<Feature> add(Collection<? extends Element> elements) {
+            List<Feature> provisioned = new ArrayList<>();
+            for (Element e : elements) {
+                if (!(e instanceof Feature) || !present.add((Feature) e)) continue;
+                Feature feature = (Feature) e;
+                check(feature, byIdentity.getOrDefault(feature.symbolicName(), List.of()), provisioned);
+                check(feature, unindexed, provisioned);
+            }
+            return provisioned;
+        }
+
+        private void check(Feature feature, List<Requirement> requirements, List<Feature> provisioned) {
+            for (Requirement r : requirements) {
+                if (satisfied.get(r.id) || !r.filter.matches(feature)) continue;
+                satisfied.set(r.id);
+                if (--unsatisfied[r.owner] == 0) provisioned.add(autoFeatures.get(r.owner));
+            }
+        }
+    }
+}
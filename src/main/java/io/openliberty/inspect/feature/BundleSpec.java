@@ -14,9 +14,17 @@ package io.openliberty.inspect.feature;
 
 import io.openliberty.inspect.Bundle;
 import io.openliberty.inspect.Element;
+import io.openliberty.inspect.ResolutionIndex;
 import org.osgi.framework.VersionRange;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 public class BundleSpec implements ContentSpec {
+    static final char TYPE = 'B';
     final String symbolicName;
     final VersionRange versionRange;
 
@@ -25,16 +33,31 @@ public class BundleSpec implements ContentSpec {
         this.versionRange = VersionRange.valueOf(ve.getQualifierOrDefault("version", "0.0"));
     }
 
+    BundleSpec(DataInput in) throws IOException {
+        this.symbolicName = in.readUTF();
+        this.versionRange = VersionRange.valueOf(in.readUTF());
+    }
+
     @Override
     public boolean matches(Element e) {
         return e instanceof Bundle && symbolicName.equals(e.symbolicName()) && versionRange.includes(e.version());
     }
 
     @Override
-    public int compareMatches(Element f1, Element f2) {
-        return f1.compareTo(f2);
+    public Stream<String> symbolicNames() { return Stream.of(symbolicName); }
+
+    @Override
+    public Optional<Element> findBestMatch(ResolutionIndex index) {
+        // prefer the highest version in range
+        return index.findHighest(Bundle.class, symbolicName, versionRange);
     }
 
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeChar(TYPE);
+        out.writeUTF(symbolicName);
+        out.writeUTF(versionRange.toString());
+    }
 
     @Override
     public String toString() {
@@ -0,0 +1,227 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect.feature;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An LDAP-style filter from a provision capability, compiled once into a tree of matchers, e.g.
+ * <code>(&amp;(type=osgi.subsystem.feature)(|(osgi.identity=a-1.0)(osgi.identity=a-2.0)))</code>.
+ * A feature is matched as a capability with two attributes:
+ * <code>type</code>, which is always <code>osgi.subsystem.feature</code>, and <code>osgi.identity</code>, its symbolic name.
+ */
+abstract class CapabilityFilter {
+    private static final String TYPE = "type";
+    private static final String IDENTITY = "osgi.identity";
+    private static final String FEATURE_TYPE = "osgi.subsystem.feature";
+
+    abstract boolean matches(Feature feature);
+
+    /**
+     * Returns the symbolic names of the only features this filter could match,
+     * or nothing if it does not restrict the identity to a fixed set of names.
+     */
+    abstract Optional<Set<String>> identities();
+
+    static CapabilityFilter compile(String filter) { return new Parser(filter).parse(); }
+
+    private static final class And extends CapabilityFilter {
+        final List<CapabilityFilter> operands;
+        And(List<CapabilityFilter> operands) { this.operands = operands; }
+
+        boolean matches(Feature feature) {
+            for (CapabilityFilter f : operands) if (!f.matches(feature)) return false;
+            return true;
+        }
+
+        Optional<Set<String>> identities() {
+            // any restricted operand restricts the whole, so use the narrowest
+            return operands.stream()
+                    .map(CapabilityFilter::identities)
+                    .flatMap(Optional::stream)
+                    .min((a, b) -> Integer.compare(a.size(), b.size()));
+        }
+    }
+
+    private static final class Or extends CapabilityFilter {
+        final List<CapabilityFilter> operands;
+        Or(List<CapabilityFilter> operands) { this.operands = operands; }
+
+        boolean matches(Feature feature) {
+            for (CapabilityFilter f : operands) if (f.matches(feature)) return true;
+            return false;
+        }
+
+        Optional<Set<String>> identities() {
+            Set<String> union = new HashSet<>();
+            for (CapabilityFilter f : operands) {
+                Optional<Set<String>> names = f.identities();
+                if (names.isEmpty()) return Optional.empty();
+                union.addAll(names.get());
+            }
+            return Optional.of(union);
+        }
+    }
+
+    private static final class Not extends CapabilityFilter {
+        final CapabilityFilter operand;
+        Not(CapabilityFilter operand) { this.operand = operand; }
+
+        boolean matches(Feature feature) { return !operand.matches(feature); }
+
+        Optional<Set<String>> identities() { return Optional.empty(); }
+    }
+
+    /** A comparison of one attribute, where an equality value may contain <code>*</code> wildcards */
+    private static final class Comparison extends CapabilityFilter {
+        final String attribute;
+        final char operator;
+        // the literal parts of the value, between any wildcards
+        final List<String> parts;
+
+        Comparison(String attribute, char operator, List<String> parts) {
+            this.attribute = attribute;
+            this.operator = operator;
+            this.parts = parts;
+        }
+
+        boolean matches(Feature feature) {
+            String value = valueOf(feature);
+            if (null == value) return false;
+            switch (operator) {
+                case '=': return matchesWildcards(value);
+                case '~': return value.equalsIgnoreCase(parts.get(0));
+                case '>': return value.compareTo(parts.get(0)) >= 0;
+                case '<': return value.compareTo(parts.get(0)) <= 0;
+                default: throw new Error("Unknown filter operator: " + operator);
+            }
+        }
+
+        private String valueOf(Feature feature) {
+            if (IDENTITY.equalsIgnoreCase(attribute)) return feature.symbolicName();
+            if (TYPE.equalsIgnoreCase(attribute)) return FEATURE_TYPE;
+            return null;
+        }
+
+        private boolean matchesWildcards(String value) {
+            if (parts.size() == 1) return value.equals(parts.get(0));
+            if (!value.startsWith(parts.get(0))) return false;
+            int pos = parts.get(0).length();
+            for (int i = 1; i < parts.size() - 1; i++) {
+                pos = value.indexOf(parts.get(i), pos);
+                if (pos < 0) return false;
+                pos += parts.get(i).length();
+            }
+            String last = parts.get(parts.size() - 1);
+            return value.length() - last.length() >= pos && value.endsWith(last);
+        }
+
+        Optional<Set<String>> identities() {
+            boolean isExactIdentity = operator == '=' && parts.size() == 1 && IDENTITY.equalsIgnoreCase(attribute);
+            return isExactIdentity ? Optional.of(Set.of(parts.get(0))) : Optional.empty();
+        }
+    }
+
+    /** Parses a filter in a single pass, following the syntax of RFC 4515 as used by OSGi */
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String text) { this.text = text; }
+
+        CapabilityFilter parse() {
+            CapabilityFilter filter = filter();
+            skipWhitespace();
+            if (pos != text.length()) throw error();
+            return filter;
+        }
+
+        private CapabilityFilter filter() {
+            skipWhitespace();
+            expect('(');
+            skipWhitespace();
+            CapabilityFilter result;
+            switch (peek()) {
+                case '&': pos++; result = new And(operands()); break;
+                case '|': pos++; result = new Or(operands()); break;
+                case '!': pos++; result = new Not(filter()); break;
+                default: result = comparison();
+            }
+            skipWhitespace();
+            expect(')');
+            return result;
+        }
+
+        private List<CapabilityFilter> operands() {
+            List<CapabilityFilter> operands = new ArrayList<>();
+            skipWhitespace();
+            while (peek() == '(') {
+                operands.add(filter());
+                skipWhitespace();
+            }
+            if (operands.isEmpty()) throw error();
+            return operands;
+        }
+
+        private CapabilityFilter comparison() {
+            int start = pos;
+            while (pos < text.length() && "=~<>()".indexOf(text.charAt(pos)) < 0) pos++;
+            String attribute = text.substring(start, pos).strip();
+            if (attribute.isEmpty()) throw error();
+            char operator = peek();
+            if (operator != '=') {
+                pos++;
+                if (operator != '~' && operator != '<' && operator != '>') throw error();
+            }
+            expect('=');
+            // read the value, splitting it at unescaped wildcards
+            List<String> parts = new ArrayList<>();
+            var part = new StringBuilder();
+            while (pos < text.length() && text.charAt(pos) != ')') {
+                char c = text.charAt(pos++);
+                if (c == '\\' && pos < text.length()) {
+                    part.append(text.charAt(pos++));
+                } else if (c == '*' && operator == '=') {
+                    parts.add(part.toString());
+                    part.setLength(0);
+                } else {
+                    part.append(c);
+                }
+            }
+            parts.add(part.toString());
+            return new Comparison(attribute, operator, List.copyOf(parts));
+        }
+
+        private char peek() {
+            if (pos >= text.length()) throw error();
+            return text.charAt(pos);
+        }
+
+        private void expect(char c) {
+            if (peek() != c) throw error();
+            pos++;
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        private IllegalArgumentException error() {
+            return new IllegalArgumentException("Unable to parse filter at position " + pos + ": " + text);
+        }
+    }
+}
@@ -13,18 +13,22 @@
 package io.openliberty.inspect.feature;
 
 import io.openliberty.inspect.Element;
+import io.openliberty.inspect.ResolutionIndex;
 
-import java.util.Collection;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ContentSpec {
-    default Optional<Element> findBestMatch(Collection<Element> elements) {
-        return elements.stream()
-                .filter(this::matches)
-                .max(this::compareMatches);
-    }
+    Optional<Element> findBestMatch(ResolutionIndex index);
 
     boolean matches(Element e);
 
-    int compareMatches(Element f1, Element f2);
+    /** Returns the symbolic names of the elements that could satisfy this spec */
+    Stream<String> symbolicNames();
+
+    /** Save this spec so that it can be read back by {@link Feature#readSpec(DataInput)} */
+    void write(DataOutput out) throws IOException;
 }
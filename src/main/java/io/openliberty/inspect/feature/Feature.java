@@ -13,25 +13,34 @@
 package io.openliberty.inspect.feature;
 
 import io.openliberty.inspect.Element;
+import io.openliberty.inspect.ResolutionIndex;
 import io.openliberty.inspect.Visibility;
 import org.osgi.framework.Version;
 
-import java.io.FileInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOError;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Path;
-import java.util.Collection;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.jar.Attributes;
-import java.util.jar.Manifest;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toUnmodifiableList;
 
 public final class Feature implements Element {
+    /** The only headers read from a feature manifest */
+    static final Set<ManifestKey> HEADERS = EnumSet.of(
+            ManifestKey.SUBSYSTEM_SYMBOLICNAME,
+            ManifestKey.SUBSYSTEM_VERSION,
+            ManifestKey.IBM_SHORTNAME,
+            ManifestKey.SUBSYSTEM_CONTENT,
+            ManifestKey.IBM_PROVISION_CAPABILITY);
+    private static final String IDENTITY_NAMESPACE = "osgi.identity";
     private final Path path;
     private final String fullName;
     private final String shortName;
@@ -40,12 +49,15 @@ public final class Feature implements Element {
     private final Visibility visibility;
     private final List<ContentSpec> contents;
     private final boolean isAutoFeature;
+    private final boolean isSingleton;
+    // the filters of the identities an auto-feature requires
+    private final List<String> provisionFilters;
 
     public Feature(Path path) {
         this.path = path;
-        final Attributes attributes;
-        try (InputStream in = new FileInputStream(path.toFile())) {
-            attributes = new Manifest(in).getMainAttributes();
+        final Map<ManifestKey, String> attributes;
+        try {
+            attributes = ManifestKey.read(path, HEADERS);
         } catch (IOException e) {
             throw new IOError(e);
         }
@@ -57,6 +69,10 @@ public final class Feature implements Element {
                 .map(String::toUpperCase)
                 .map(Visibility::valueOf)
                 .orElse(Visibility.UNKNOWN);
+        this.isSingleton = symbolicName
+                .map(v -> v.getQualifier("singleton"))
+                .map(Boolean::parseBoolean)
+                .orElse(false);
         this.name = visibility == Visibility.PUBLIC ? shortName().orElse(fullName) : fullName;
         this.contents = ManifestKey.SUBSYSTEM_CONTENT.parseValues(attributes)
                 .map(Feature::createSpec)
@@ -64,9 +80,46 @@ public final class Feature implements Element {
                 .map(Optional::get)
                 .collect(toUnmodifiableList());
         this.isAutoFeature = ManifestKey.IBM_PROVISION_CAPABILITY.isPresent(attributes);
+        this.provisionFilters = ManifestKey.IBM_PROVISION_CAPABILITY.parseValues(attributes)
+                .filter(ve -> IDENTITY_NAMESPACE.equals(ve.id))
+                .map(ve -> ve.getQualifier("filter"))
+                .filter(Objects::nonNull)
+                .collect(toUnmodifiableList());
         this.version = ManifestKey.SUBSYSTEM_VERSION.get(attributes).map(Version::new).orElse(Version.emptyVersion);
     }
 
+    /** Recreate a feature previously saved with {@link #write(DataOutput)} */
+    public Feature(Path path, DataInput in) throws IOException {
+        this.path = path;
+        this.fullName = in.readUTF();
+        this.shortName = in.readBoolean() ? in.readUTF() : null;
+        this.visibility = Visibility.valueOf(in.readUTF());
+        this.name = visibility == Visibility.PUBLIC ? shortName().orElse(fullName) : fullName;
+        this.version = Version.parseVersion(in.readUTF());
+        this.isAutoFeature = in.readBoolean();
+        this.isSingleton = in.readBoolean();
+        var filters = new String[in.readInt()];
+        for (int i = 0; i < filters.length; i++) filters[i] = in.readUTF();
+        this.provisionFilters = List.of(filters);
+        var specs = new ContentSpec[in.readInt()];
+        for (int i = 0; i < specs.length; i++) specs[i] = readSpec(in);
+        this.contents = List.of(specs);
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeUTF(fullName);
+        out.writeBoolean(null != shortName);
+        if (null != shortName) out.writeUTF(shortName);
+        out.writeUTF(visibility.name());
+        out.writeUTF(version.toString());
+        out.writeBoolean(isAutoFeature);
+        out.writeBoolean(isSingleton);
+        out.writeInt(provisionFilters.size());
+        for (String filter : provisionFilters) out.writeUTF(filter);
+        out.writeInt(contents.size());
+        for (ContentSpec spec : contents) spec.write(out);
+    }
+
     @Override
     public Path path() { return path; }
     @Override
@@ -82,11 +135,30 @@ public final class Feature implements Element {
     public Stream<String> aka() { return Stream.of(shortName); }
     @Override
     public boolean isAutoFeature() { return isAutoFeature; }
+    /** Returns the filters an auto-feature's provision capability requires features to match, one for each required feature */
+    List<String> provisionFilters() { return provisionFilters; }
+    /** Returns whether at most one version of this feature may be provisioned at a time */
+    public boolean isSingleton() { return isSingleton; }
+    @Override
+    public int contentCount() { return contents.size(); }
+
+    /** Returns the specs for the features this feature contains */
+    public Stream<FeatureSpec> featureSpecs() {
+        return contents.stream()
+                .filter(FeatureSpec.class::isInstance)
+                .map(FeatureSpec.class::cast);
+    }
+
+    @Override
+    public Stream<String> contentNames() {
+        return contents.stream()
+                .flatMap(ContentSpec::symbolicNames);
+    }
 
     @Override
-    public Stream<Element> findDependencies(Collection<Element> elements) {
+    public Stream<Element> findDependencies(ResolutionIndex index) {
         return contents.stream()
-                .map(spec -> spec.findBestMatch(elements))
+                .map(spec -> spec.findBestMatch(index))
                 .flatMap(Optional::stream);
     }
 
@@ -125,4 +197,13 @@ public final class Feature implements Element {
             default: throw new IllegalStateException("Unknown content type: " + type);
         }
     }
+
+    static ContentSpec readSpec(DataInput in) throws IOException {
+        char type = in.readChar();
+        switch (type) {
+            case FeatureSpec.TYPE: return new FeatureSpec(in);
+            case BundleSpec.TYPE: return new BundleSpec(in);
+            default: throw new IOException("Unknown content spec type: " + type);
+        }
+    }
 }
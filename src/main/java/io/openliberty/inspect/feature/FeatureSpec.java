@@ -13,15 +13,22 @@
 package io.openliberty.inspect.feature;
 
 import io.openliberty.inspect.Element;
+import io.openliberty.inspect.ResolutionIndex;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.joining;
 import static java.util.stream.Collectors.toUnmodifiableList;
 
 public class FeatureSpec implements ContentSpec {
+    static final char TYPE = 'F';
     // first item is the preferred version, the rest are tolerated
     private final List<String> symbolicNames;
 
@@ -37,21 +44,37 @@ public class FeatureSpec implements ContentSpec {
                 .collect(toUnmodifiableList());
     }
 
+    FeatureSpec(DataInput in) throws IOException {
+        var names = new String[in.readInt()];
+        for (int i = 0; i < names.length; i++) names[i] = in.readUTF();
+        this.symbolicNames = List.of(names);
+    }
+
     @Override
     public boolean matches(Element e) {
         return e instanceof Feature && symbolicNames.contains(e.symbolicName());
     }
 
     @Override
-    public int compareMatches(Element f1, Element f2) {
-        return ordinal(f1) - ordinal(f2);
+    public Stream<String> symbolicNames() { return symbolicNames.stream(); }
+
+    @Override
+    public Optional<Element> findBestMatch(ResolutionIndex index) {
+        // the last acceptable feature present wins
+        for (int i = symbolicNames.size() - 1; i >= 0; i--) {
+            Optional<Element> match = index.find(symbolicNames.get(i)).stream()
+                    .filter(Feature.class::isInstance)
+                    .reduce((first, second) -> second);
+            if (match.isPresent()) return match;
+        }
+        return Optional.empty();
     }
 
-    private int ordinal(Element f) {
-        int result = symbolicNames.indexOf(f.symbolicName());
-        if (-1 == result)
-            throw new IllegalStateException("Cannot establish order for feature " + f + " because it does not occur in the list of acceptable features: " + symbolicNames);
-        return result;
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeChar(TYPE);
+        out.writeInt(symbolicNames.size());
+        for (String name : symbolicNames) out.writeUTF(name);
     }
 
     @Override
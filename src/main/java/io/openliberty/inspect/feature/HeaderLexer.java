@@ -0,0 +1,131 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect.feature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Splits a manifest header value into its entries in a single pass, following the OSGi header syntax:
+ * <pre>
+ *     header    ::= entry ( ',' entry )*
+ *     entry     ::= path ( ';' path )* ( ';' parameter )*
+ *     parameter ::= key ( ':=' | '=' ) value
+ * </pre>
+ * Any part may be quoted, in which case commas, semicolons and equals signs are taken literally.
+ * A backslash escapes the character after it, whether quoted or not, but is itself kept in the result,
+ * as the regular expressions this replaced did, so that values with escapes of their own (such as filters)
+ * reach whoever interprets them unchanged.
+ * Unquoted whitespace around each part is ignored.
+ */
+final class HeaderLexer {
+    private final String text;
+    private int pos;
+
+    private HeaderLexer(String text) { this.text = text; }
+
+    static List<ManifestValueEntry> parse(String text) {
+        return new HeaderLexer(text).entries();
+    }
+
+    private List<ManifestValueEntry> entries() {
+        List<ManifestValueEntry> entries = new ArrayList<>();
+        while (pos < text.length()) {
+            var entry = entry();
+            if (null != entry) entries.add(entry);
+            // skip the comma
+            pos++;
+        }
+        return entries;
+    }
+
+    /** Read up to (but not including) the next unquoted comma, returning null if the entry is empty */
+    private ManifestValueEntry entry() {
+        List<String> ids = new ArrayList<>(1);
+        Map<String, String> qualifiers = new TreeMap<>();
+        while (pos < text.length() && text.charAt(pos) != ',') {
+            String part = part(true);
+            if (isAssignment()) {
+                // skip the ':=' or '='
+                pos += text.charAt(pos) == ':' ? 2 : 1;
+                String oldValue = qualifiers.put(part, part(false));
+                if (null != oldValue)
+                    System.err.printf("WARNING: duplicate metadata key '%s' detected in string '%s'%n", part, text);
+            } else if (!part.isEmpty()) {
+                ids.add(part);
+            }
+            // skip the semicolon
+            if (pos < text.length() && text.charAt(pos) == ';') pos++;
+        }
+        if (ids.isEmpty()) {
+            if (qualifiers.isEmpty()) return null;
+            throw new Error("Unable to parse manifest value into constituent parts: " + text);
+        }
+        return new ManifestValueEntry(ids, qualifiers);
+    }
+
+    private boolean isAssignment() {
+        if (pos >= text.length()) return false;
+        char c = text.charAt(pos);
+        return c == '=' || (c == ':' && pos + 1 < text.length() && text.charAt(pos + 1) == '=');
+    }
+
+    /**
+     * Read a path, key, or value, stopping at an unquoted comma or semicolon (or assignment, if reading a key).
+     * Unless quotes are used, the result is a substring of the header, so no copying is needed.
+     */
+    private String part(boolean isKey) {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        final int start = pos;
+        int end = pos;
+        StringBuilder unquoted = null;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c == ',' || c == ';' || (isKey && isAssignment())) break;
+            if (c == '"') {
+                if (null == unquoted) unquoted = new StringBuilder(pos - start + 32).append(text, start, pos);
+                pos++;
+                quoted(unquoted);
+                // quoted text is always kept, even if it is whitespace
+                end = start + unquoted.length();
+                continue;
+            }
+            if (c == '\\' && pos + 1 < text.length()) {
+                // the escape is kept, and so is the character it escapes, even if it is whitespace
+                if (null != unquoted) unquoted.append(c).append(text.charAt(pos + 1));
+                pos += 2;
+                end = null == unquoted ? pos : start + unquoted.length();
+                continue;
+            }
+            if (null != unquoted) unquoted.append(c);
+            pos++;
+            if (!Character.isWhitespace(c)) end = null == unquoted ? pos : start + unquoted.length();
+        }
+        if (null == unquoted) return text.substring(start, end);
+        unquoted.setLength(end - start);
+        return unquoted.toString();
+    }
+
+    /** Append the contents of a quoted string, having already read the opening quote */
+    private void quoted(StringBuilder out) {
+        while (pos < text.length()) {
+            char c = text.charAt(pos++);
+            if (c == '"') return;
+            out.append(c);
+            if (c == '\\' && pos < text.length()) out.append(text.charAt(pos++));
+        }
+        throw new Error("Unterminated quoted string in manifest value: " + text);
+    }
+}
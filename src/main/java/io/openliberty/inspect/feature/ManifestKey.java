@@ -12,17 +12,23 @@
  */
 package io.openliberty.inspect.feature;
 
+import io.openliberty.util.ManifestScanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
-import java.util.jar.Attributes;
-import java.util.regex.MatchResult;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 @SuppressWarnings("unused")
-enum ManifestKey implements Function<Attributes, String>, Predicate<Attributes> {
+enum ManifestKey implements Function<Map<ManifestKey, String>, String>, Predicate<Map<ManifestKey, String>> {
     CREATED_BY("Created-By"),
     IBM_API_PACKAGE("IBM-API-Package"),
     IBM_API_SERVICE("IBM-API-Service"),
@@ -56,39 +62,46 @@ enum ManifestKey implements Function<Attributes, String>, Predicate<Attributes>
     SUBSYSTEM_VERSION("Subsystem-Version"),
     TOOL("Tool"),
     WLP_ACTIVATION_TYPE("WLP-Activation-Type");
-    private static final Pattern ELEMENT_PATTERN = Pattern.compile("(([^\",\\\\]|\\\\.)+|\"([^\\\\\"]|\\\\.)*+\")+");
-    final Attributes.Name name;
+    final String header;
+
+    ManifestKey(String header) {
+        this.header = header;
+    }
 
-    ManifestKey(String name) {
-        this.name = new Attributes.Name(name);
+    /** Read just the given headers from the main section of a manifest file */
+    static Map<ManifestKey, String> read(Path manifest, Set<ManifestKey> keys) throws IOException {
+        Map<String, ManifestKey> byHeader = new HashMap<>();
+        for (ManifestKey key : keys) byHeader.put(key.header, key);
+        Map<ManifestKey, String> values = new EnumMap<>(ManifestKey.class);
+        ManifestScanner.mainAttributes(Files.readAllBytes(manifest), byHeader.keySet())
+                .forEach((header, value) -> values.put(byHeader.get(header), value));
+        return values;
     }
 
-    boolean isPresent(Attributes feature) {
-        return feature.containsKey(name);
+    boolean isPresent(Map<ManifestKey, String> feature) {
+        return feature.containsKey(this);
     }
 
-    boolean isAbsent(Attributes feature) {
+    boolean isAbsent(Map<ManifestKey, String> feature) {
         return !isPresent(feature);
     }
 
-    Optional<String> get(Attributes feature) {
-        return Optional.ofNullable(feature.getValue(name));
+    Optional<String> get(Map<ManifestKey, String> feature) {
+        return Optional.ofNullable(feature.get(this));
     }
 
-    Stream<ManifestValueEntry> parseValues(Attributes feature) {
+    Stream<ManifestValueEntry> parseValues(Map<ManifestKey, String> feature) {
         return get(feature)
-                .map(ELEMENT_PATTERN::matcher)
-                .map(Matcher::results)
-                .orElse(Stream.empty())
-                .map(MatchResult::group)
-                .map(ManifestValueEntry::new);
+                .map(HeaderLexer::parse)
+                .stream()
+                .flatMap(List::stream);
     }
 
-    public String apply(Attributes feature) {
-        return feature.getValue(name);
+    public String apply(Map<ManifestKey, String> feature) {
+        return feature.get(this);
     }
 
-    public boolean test(Attributes feature) {
+    public boolean test(Map<ManifestKey, String> feature) {
         return isPresent(feature);
     }
 }
@@ -12,38 +12,22 @@
  */
 package io.openliberty.inspect.feature;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static java.util.Collections.unmodifiableMap;
 
 class ManifestValueEntry {
-    private static final String TEXT = "([^\";\\\\]|\\\\.)+";
-    private static final String QUOTED_TEXT = "\"([^\\\\\"]|\\\\.)+\"";
-    private static final Pattern ATOM_PATTERN = Pattern.compile(String.format("(%s|%s)+", TEXT, QUOTED_TEXT));
     final String id;
+    // most entries have a single path, but e.g. packages exported with the same parameters can share an entry
+    final List<String> ids;
     private final Map<? extends String, String> qualifiers;
 
-    ManifestValueEntry(String text) {
-        Matcher m = ATOM_PATTERN.matcher(text);
-        if (!m.find()) throw new Error("Unable to parse manifest value into constituent parts: " + text);
-        this.id = m.group();
-        Map<String, String> map = new TreeMap<>();
-        while (m.find(m.end())) {
-            String[] parts = m.group().split(":?=", 2);
-            if (parts.length == 1) {
-                System.out.println(m.group());
-                System.out.flush();
-                System.exit(1);
-            }
-            String oldValue = map.put(parts[0].trim(), parts[1].trim().replaceFirst("^\"(.*)\"$", "$1"));
-            if (null != oldValue)
-                System.err.printf("WARNING: duplicate metadata key '%s' detected in string '%s'", parts[0], text);
-        }
-        this.qualifiers = unmodifiableMap(map);
+    ManifestValueEntry(List<String> ids, Map<String, String> qualifiers) {
+        this.id = ids.get(0);
+        this.ids = List.copyOf(ids);
+        this.qualifiers = unmodifiableMap(qualifiers);
     }
 
     String getQualifier(String key) {
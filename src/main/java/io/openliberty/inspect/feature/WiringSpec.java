@@ -0,0 +1,124 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect.feature;
+
+import io.openliberty.inspect.Bundle;
+import io.openliberty.inspect.Element;
+import io.openliberty.inspect.ResolutionIndex;
+import org.osgi.framework.Version;
+import org.osgi.framework.VersionRange;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.osgi.framework.Constants.BUNDLE_VERSION_ATTRIBUTE;
+import static org.osgi.framework.Constants.EXPORT_PACKAGE;
+import static org.osgi.framework.Constants.FRAGMENT_HOST;
+import static org.osgi.framework.Constants.IMPORT_PACKAGE;
+import static org.osgi.framework.Constants.REQUIRE_BUNDLE;
+import static org.osgi.framework.Constants.RESOLUTION_DIRECTIVE;
+import static org.osgi.framework.Constants.RESOLUTION_OPTIONAL;
+import static org.osgi.framework.Constants.VERSION_ATTRIBUTE;
+
+/**
+ * One clause of a bundle header that wires bundles together:
+ * a package the bundle exports, a package it imports, a bundle it requires, or the host it is a fragment of.
+ * Exports carry a version, and the others a version range.
+ */
+public final class WiringSpec {
+    public enum Kind {
+        EXPORT(EXPORT_PACKAGE, VERSION_ATTRIBUTE),
+        IMPORT(IMPORT_PACKAGE, VERSION_ATTRIBUTE),
+        REQUIRE(REQUIRE_BUNDLE, BUNDLE_VERSION_ATTRIBUTE),
+        HOST(FRAGMENT_HOST, BUNDLE_VERSION_ATTRIBUTE);
+
+        private final String header;
+        private final String versionAttribute;
+
+        Kind(String header, String versionAttribute) {
+            this.header = header;
+            this.versionAttribute = versionAttribute;
+        }
+
+        /** Returns the name of the manifest header holding clauses of this kind */
+        public String header() { return header; }
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final String version;
+    private final boolean isOptional;
+    // the version is parsed up front, so that a malformed one is reported when the manifest is read
+    private final Version exportedVersion;
+    private final VersionRange versionRange;
+
+    private WiringSpec(Kind kind, String name, String version, boolean isOptional) {
+        this.kind = kind;
+        this.name = name;
+        this.version = version;
+        this.isOptional = isOptional;
+        this.exportedVersion = kind == Kind.EXPORT ? Version.parseVersion(version) : null;
+        this.versionRange = kind == Kind.EXPORT ? null : VersionRange.valueOf(version);
+    }
+
+    /** Recreate a spec previously saved with {@link #write(DataOutput)} */
+    public WiringSpec(DataInput in) throws IOException {
+        this(Kind.values()[in.readByte()], in.readUTF(), in.readUTF(), in.readBoolean());
+    }
+
+    /** Parse the value of a header of the given kind, with one spec for each package or bundle it names */
+    public static Stream<WiringSpec> parse(Kind kind, String value) {
+        return HeaderLexer.parse(value).stream().flatMap(ve -> {
+            // exports may still use the version attribute of older versions of the specification
+            String version = ve.getQualifierIfPresent(kind.versionAttribute)
+                    .or(() -> Optional.ofNullable(kind == Kind.EXPORT ? ve.getQualifier("specification-version") : null))
+                    .orElse("0.0.0");
+            boolean isOptional = RESOLUTION_OPTIONAL.equals(ve.getQualifier(RESOLUTION_DIRECTIVE));
+            return ve.ids.stream().map(id -> new WiringSpec(kind, id, version, isOptional));
+        });
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(kind.ordinal());
+        out.writeUTF(name);
+        out.writeUTF(version);
+        out.writeBoolean(isOptional);
+    }
+
+    public Kind kind() { return kind; }
+    /** Returns the name of the package or bundle */
+    public String name() { return name; }
+    /** Returns the version of an exported package */
+    public Version version() { return exportedVersion; }
+    /** Returns the versions of the package or bundle that would satisfy this spec */
+    public VersionRange versionRange() { return versionRange; }
+    public boolean isOptional() { return isOptional; }
+
+    /** Find the bundle this spec wires to, i.e. the highest version in range of the bundle or of an exporter of the package */
+    public Optional<Element> findBestMatch(ResolutionIndex index) {
+        switch (kind) {
+            case IMPORT: return index.findExporter(name, versionRange());
+            case REQUIRE:
+            case HOST: return index.findHighest(Bundle.class, name, versionRange());
+            default: return Optional.empty();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return kind.header + ": " + name + ":" + version;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Extracts a few headers from the main section of a manifest, without parsing the rest of it.
+ * The main section ends at the first blank line.
+ * Lines are at most 72 bytes long, so a longer value continues on following lines, each starting with a space.
+ * A multi-byte character may be split between lines, so values are decoded only once they are complete.
+ */
+public final class ManifestScanner {
+    private ManifestScanner() {}
+
+    /** Returns the values of those of the named headers that are present, keyed by the given names */
+    public static Map<String, String> mainAttributes(byte[] manifest, Collection<String> names) {
+        Map<String, String> values = new HashMap<>();
+        ByteArrayOutputStream value = new ByteArrayOutputStream();
+        String wanted = null;
+        int pos = 0;
+        while (pos < manifest.length) {
+            int end = pos;
+            while (end < manifest.length && manifest[end] != '\r' && manifest[end] != '\n') end++;
+            if (end == pos) break;
+            if (manifest[pos] == ' ') {
+                if (null != wanted) value.write(manifest, pos + 1, end - pos - 1);
+            } else {
+                if (null != wanted) values.put(wanted, value.toString(UTF_8));
+                wanted = null;
+                int colon = pos;
+                while (colon + 1 < end && !(manifest[colon] == ':' && manifest[colon + 1] == ' ')) colon++;
+                if (colon + 1 < end) {
+                    wanted = find(names, manifest, pos, colon);
+                    if (null != wanted) {
+                        value.reset();
+                        value.write(manifest, colon + 2, end - colon - 2);
+                    }
+                }
+            }
+            // skip the line ending, which may be CR LF
+            pos = end + (end + 1 < manifest.length && manifest[end] == '\r' && manifest[end + 1] == '\n' ? 2 : 1);
+        }
+        if (null != wanted) values.put(wanted, value.toString(UTF_8));
+        return values;
+    }
+
+    /** Header names are ASCII, and compared regardless of case */
+    private static String find(Collection<String> names, byte[] manifest, int start, int end) {
+        nextName:
+        for (String name : names) {
+            if (name.length() != end - start) continue;
+            for (int i = 0; i < name.length(); i++) {
+                if (Character.toLowerCase((char) manifest[start + i]) != Character.toLowerCase(name.charAt(i))) continue nextName;
+            }
+            return name;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.explore;
+
+import io.openliberty.explore.LibertyExplorer.Interpolation;
+import io.openliberty.inspect.Catalog;
+import io.openliberty.inspect.Element;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import static java.util.stream.Collectors.toUnmodifiableSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Checks that interpolating by reachability finds the same subgraph as enumerating the paths between the matches */
+class InterpolationTest {
+    private static final String PREFIX = "com.example.";
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Write an installation whose features depend on each other in cycles,
+     * e.g. b-1.0 and d-1.0 contain each other, as do e-1.0 and f-1.0.
+     * a-1.0 asks for c-1.0 but tolerates c-2.0, which is the version it gets.
+     * m-1.0 and z-1.0 form a cycle off the path from h-1.0 to q-1.0.
+     */
+    private Catalog catalog() throws IOException {
+        Path features = Files.createDirectories(dir.resolve("lib/features"));
+        writeFeature(features, "a-1.0", "b-1.0", "c-1.0; ibm.tolerates:=\"2.0\"");
+        writeFeature(features, "b-1.0", "d-1.0");
+        writeFeature(features, "c-1.0", "d-1.0");
+        writeFeature(features, "c-2.0", "d-1.0", "e-1.0");
+        writeFeature(features, "d-1.0", "b-1.0", "f-1.0");
+        writeFeature(features, "e-1.0", "f-1.0");
+        writeFeature(features, "f-1.0", "e-1.0");
+        writeFeature(features, "g-1.0", "a-1.0");
+        writeFeature(features, "h-1.0", "m-1.0");
+        writeFeature(features, "m-1.0", "z-1.0", "q-1.0");
+        writeFeature(features, "z-1.0", "m-1.0");
+        writeFeature(features, "q-1.0");
+        return new Catalog(dir, false);
+    }
+
+    private static void writeFeature(Path features, String name, String... content) throws IOException {
+        var manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("IBM-Feature-Version", "2");
+        attributes.putValue("Subsystem-ManifestVersion", "1.0");
+        attributes.putValue("Subsystem-SymbolicName", PREFIX + name + "; visibility:=public");
+        attributes.putValue("Subsystem-Version", name.substring(name.lastIndexOf('-') + 1));
+        attributes.putValue("Subsystem-Type", "osgi.subsystem.feature");
+        attributes.putValue("IBM-ShortName", name);
+        if (content.length > 0) {
+            var specs = new StringBuilder();
+            for (String spec : content) specs.append(specs.length() == 0 ? "" : ",").append(PREFIX).append(spec).append("; type=\"osgi.subsystem.feature\"");
+            attributes.putValue("Subsystem-Content", specs.toString());
+        }
+        try (OutputStream out = Files.newOutputStream(features.resolve(PREFIX + name + ".mf"))) {
+            manifest.write(out);
+        }
+    }
+
+    /** Returns the edges of the subgraph a query finds, written as "from -> to" using short names */
+    private static Set<String> edges(Catalog catalog, Interpolation interpolation, String... patterns) throws Exception {
+        var output = new ByteArrayOutputStream();
+        var explorer = new LibertyExplorer(catalog, null, new PrintStream(output), new PrintStream(output));
+        explorer.interpolation = interpolation;
+        explorer.init(List.of(patterns));
+        Graph<Element, DefaultEdge> graph = explorer.subgraph();
+        return graph.edgeSet().stream()
+                .map(e -> name(graph.getEdgeSource(e)) + " -> " + name(graph.getEdgeTarget(e)))
+                .collect(toUnmodifiableSet());
+    }
+
+    private static String name(Element element) {
+        return element.symbolicName().substring(PREFIX.length());
+    }
+
+    @Test
+    void interpolationsAgree() throws Exception {
+        Catalog catalog = catalog();
+        List<List<String>> queries = List.of(
+                List.of("a-1.0", "d-1.0"),
+                List.of("a-1.0", "f-1.0"),
+                List.of("b-1.0", "d-1.0"),
+                List.of("e-1.0", "f-1.0"),
+                List.of("g-1.0", "e-1.0"),
+                List.of("g-1.0", "d-1.0", "!c-2.0"),
+                List.of("a-1.0", "f-1.0", "!d-1.0"),
+                List.of("a-1.0", "d-1.0", "!c-2.0"),
+                List.of("c-1.0", "b-1.0"),
+                List.of("*-1.0"));
+        for (List<String> query : queries) {
+            String[] patterns = query.toArray(String[]::new);
+            assertEquals(edges(catalog, Interpolation.paths, patterns), edges(catalog, Interpolation.reachable, patterns), String.join(" ", query));
+        }
+    }
+
+    @Test
+    void cyclesAndToleratesAreFollowed() throws Exception {
+        Catalog catalog = catalog();
+        // the tolerated version is the one on the path, and the cycle between b-1.0 and d-1.0 is kept
+        assertEquals(Set.of("a-1.0 -> b-1.0", "a-1.0 -> c-2.0", "b-1.0 -> d-1.0", "c-2.0 -> d-1.0", "d-1.0 -> b-1.0"),
+                edges(catalog, Interpolation.reachable, "a-1.0", "d-1.0"));
+        // excluding d-1.0 leaves only the path through c-2.0
+        assertEquals(Set.of("a-1.0 -> c-2.0", "c-2.0 -> e-1.0", "e-1.0 -> f-1.0", "f-1.0 -> e-1.0"),
+                edges(catalog, Interpolation.reachable, "a-1.0", "f-1.0", "!d-1.0"));
+    }
+
+    /** The one documented difference: reachability also takes in cycles that a simple path cannot go round */
+    @Test
+    void reachabilityIncludesCyclesOffThePath() throws Exception {
+        Catalog catalog = catalog();
+        // z-1.0 is reachable from h-1.0 and reaches q-1.0, but only by a path that visits m-1.0 twice
+        Set<String> paths = edges(catalog, Interpolation.paths, "h-1.0", "q-1.0");
+        Set<String> reachable = edges(catalog, Interpolation.reachable, "h-1.0", "q-1.0");
+        assertEquals(Set.of("h-1.0 -> m-1.0", "m-1.0 -> q-1.0"), paths);
+        assertEquals(Set.of("h-1.0 -> m-1.0", "m-1.0 -> q-1.0", "m-1.0 -> z-1.0", "z-1.0 -> m-1.0"), reachable);
+        // likewise e-1.0, which is on a cycle through f-1.0, so a path from g-1.0 that visits it must visit f-1.0 twice
+        paths = edges(catalog, Interpolation.paths, "g-1.0", "f-1.0", "!c-2.0");
+        reachable = edges(catalog, Interpolation.reachable, "g-1.0", "f-1.0", "!c-2.0");
+        assertEquals(Set.of("g-1.0 -> a-1.0", "a-1.0 -> b-1.0", "b-1.0 -> d-1.0", "d-1.0 -> b-1.0", "d-1.0 -> f-1.0"), paths);
+        assertEquals(Set.of("g-1.0 -> a-1.0", "a-1.0 -> b-1.0", "b-1.0 -> d-1.0", "d-1.0 -> b-1.0", "d-1.0 -> f-1.0", "e-1.0 -> f-1.0", "f-1.0 -> e-1.0"), reachable);
+    }
+}
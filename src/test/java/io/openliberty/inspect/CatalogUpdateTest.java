@@ -0,0 +1,87 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toUnmodifiableSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Checks that updating a catalog replaces, adds and removes elements, and keeps those whose files cannot be parsed */
+class CatalogUpdateTest {
+    private static final String PREFIX = "com.example.";
+
+    @TempDir
+    Path dir;
+
+    private Path writeFeature(String name, String content) throws IOException {
+        Path file = Files.createDirectories(dir.resolve("lib/features")).resolve(PREFIX + name + ".mf");
+        Files.writeString(file, "Manifest-Version: 1.0\n"
+                + "Subsystem-SymbolicName: " + PREFIX + name + "; visibility:=public\n"
+                + "Subsystem-Version: 1.0.0\n"
+                + "IBM-ShortName: " + name + "\n"
+                + (content.isEmpty() ? "" : "Subsystem-Content: " + content + "\n"));
+        return file;
+    }
+
+    private static String feature(String name) { return PREFIX + name + "; type=\"osgi.subsystem.feature\""; }
+
+    private static Set<String> edges(Catalog catalog) {
+        Graph<Element, DefaultEdge> graph = catalog.dependencyGraph();
+        return graph.edgeSet().stream()
+                .map(e -> graph.getEdgeSource(e).symbolicName().substring(PREFIX.length()) + " -> " + graph.getEdgeTarget(e).symbolicName().substring(PREFIX.length()))
+                .collect(toUnmodifiableSet());
+    }
+
+    @Test
+    void changesAreApplied() throws IOException {
+        Path a = writeFeature("a-1.0", feature("b-1.0"));
+        writeFeature("b-1.0", "");
+        Path c = writeFeature("c-1.0", feature("a-1.0"));
+        Catalog catalog = new Catalog(dir, false);
+        assertEquals(Set.of("a-1.0 -> b-1.0", "c-1.0 -> a-1.0"), edges(catalog));
+
+        writeFeature("a-1.0", feature("d-1.0"));
+        Path d = writeFeature("d-1.0", "");
+        Files.delete(c);
+        Catalog updated = catalog.update(Set.of(a, c, d));
+        assertEquals(Set.of("a-1.0 -> d-1.0"), edges(updated));
+        assertFalse(updated.find(PREFIX + "c-1.0").isPresent());
+        // the original is unchanged
+        assertEquals(Set.of("a-1.0 -> b-1.0", "c-1.0 -> a-1.0"), edges(catalog));
+    }
+
+    @Test
+    void unparseableFilesKeepTheirElements() throws IOException {
+        Path a = writeFeature("a-1.0", feature("b-1.0"));
+        writeFeature("b-1.0", "");
+        writeFeature("c-1.0", feature("a-1.0"));
+        Catalog catalog = new Catalog(dir, false);
+
+        // as if the file were only partly written
+        writeFeature("a-1.0", PREFIX + "b-1.0; type=\"osgi.subsys");
+        Catalog updated = catalog.update(Set.of(a));
+        assertTrue(updated.find(PREFIX + "a-1.0").isPresent());
+        assertEquals(Set.of("a-1.0 -> b-1.0", "c-1.0 -> a-1.0"), edges(updated));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Checks that {@link JarManifest} reads the same headers as {@link JarFile}, whatever the layout of the jar */
+class JarManifestTest {
+    private static final String[] HEADERS = {"Bundle-SymbolicName", "Bundle-Name", "Bundle-Version", "Export-Package", "Missing-Header"};
+
+    @TempDir
+    Path dir;
+
+    private static byte[] manifest() throws IOException {
+        var manifest = new Manifest();
+        Attributes attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Bundle-SymbolicName", "com.example.bundle; singleton:=true");
+        // a multi-byte character, in a value long enough to be wrapped onto continuation lines
+        attributes.putValue("Bundle-Name", "Example bundle é".repeat(10));
+        attributes.putValue("Bundle-Version", "1.2.3.v20220101");
+        attributes.putValue("Export-Package", "com.example.a;version=\"1.0\",com.example.b;uses:=\"com.example.a\";version=\"1.0\"");
+        var bytes = new ByteArrayOutputStream();
+        manifest.write(bytes);
+        return bytes.toByteArray();
+    }
+
+    /** Write a jar with the manifest under the given name (or none, if null), after the given number of other entries */
+    private Path jar(String name, String manifestName, boolean stored, int entriesBefore, int entriesAfter, String comment) throws IOException {
+        Path jar = dir.resolve(name + ".jar");
+        try (OutputStream file = Files.newOutputStream(jar); var zip = new ZipOutputStream(file)) {
+            for (int i = 0; i < entriesBefore; i++) entry(zip, "before/" + i + ".txt", new byte[]{(byte) i});
+            if (null != manifestName) {
+                byte[] manifest = manifest();
+                var entry = new ZipEntry(manifestName);
+                if (stored) {
+                    var crc = new CRC32();
+                    crc.update(manifest);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(manifest.length);
+                    entry.setCrc(crc.getValue());
+                }
+                zip.putNextEntry(entry);
+                zip.write(manifest);
+                zip.closeEntry();
+            }
+            for (int i = 0; i < entriesAfter; i++) entry(zip, "after/" + i + ".txt", new byte[]{(byte) i});
+            if (null != comment) zip.setComment(comment);
+        }
+        return jar;
+    }
+
+    private static void entry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static Map<String, String> readWithJarFile(Path jar) throws IOException {
+        Map<String, String> values = new HashMap<>();
+        try (JarFile jarFile = new JarFile(jar.toFile())) {
+            Manifest manifest = jarFile.getManifest();
+            if (null == manifest) return values;
+            for (String header : HEADERS) {
+                String value = manifest.getMainAttributes().getValue(header);
+                if (null != value) values.put(header, value);
+            }
+        }
+        return values;
+    }
+
+    private static void assertSameAsJarFile(Path jar, int expectedHeaders) throws IOException {
+        Map<String, String> expected = readWithJarFile(jar);
+        assertEquals(expectedHeaders, expected.size(), jar.getFileName() + " as read by JarFile");
+        assertEquals(expected, JarManifest.read(jar, HEADERS), jar.getFileName().toString());
+    }
+
+    @Test
+    void deflatedManifest() throws IOException {
+        assertSameAsJarFile(jar("deflated", JarFile.MANIFEST_NAME, false, 0, 10, null), 4);
+    }
+
+    @Test
+    void storedManifest() throws IOException {
+        assertSameAsJarFile(jar("stored", JarFile.MANIFEST_NAME, true, 0, 10, null), 4);
+    }
+
+    @Test
+    void manifestAfterOtherEntries() throws IOException {
+        // enough entries before the manifest that the directory is read in more than one chunk
+        assertSameAsJarFile(jar("late", JarFile.MANIFEST_NAME, false, 500, 10, null), 4);
+    }
+
+    @Test
+    void longComment() throws IOException {
+        // the end record is not in the first part of the file searched
+        assertSameAsJarFile(jar("comment", JarFile.MANIFEST_NAME, false, 0, 10, "x".repeat(5000)), 4);
+    }
+
+    @Test
+    void lowerCaseManifestName() throws IOException {
+        assertSameAsJarFile(jar("lower", JarFile.MANIFEST_NAME.toLowerCase(), false, 0, 10, null), 4);
+    }
+
+    @Test
+    void noManifest() throws IOException {
+        assertSameAsJarFile(jar("none", null, false, 0, 10, null), 0);
+    }
+
+    @Test
+    void zip64() throws IOException {
+        // more entries than the end record can count, so the jar is written in zip64 form and read with JarFile
+        assertSameAsJarFile(jar("zip64", JarFile.MANIFEST_NAME, false, 0, 0x10000, null), 4);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Checks that variables follow the same precedence as the server: defaults, then server.xml, then overrides */
+class ServerConfigTest {
+    @TempDir
+    Path dir;
+
+    private void write(String file, String... elements) throws IOException {
+        Path path = dir.resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, "<server>\n" + String.join("\n", elements) + "\n</server>\n");
+    }
+
+    @Test
+    void laterValuesWin() throws IOException {
+        write("configDropins/defaults/a.xml",
+                "<variable name=\"inc\" value=\"from-defaults.xml\"/>",
+                "<variable name=\"unset\" defaultValue=\"from-defaults.xml\"/>");
+        write("server.xml",
+                "<variable name=\"inc\" value=\"from-server.xml\"/>",
+                // a default does not replace a value
+                "<variable name=\"inc\" defaultValue=\"from-defaults.xml\"/>",
+                "<include location=\"${server.config.dir}/${inc}\"/>",
+                "<include location=\"${unset}\"/>");
+        write("configDropins/overrides/z.xml",
+                "<variable name=\"inc\" value=\"from-overrides.xml\"/>",
+                "<include location=\"${server.config.dir}/${inc}\"/>");
+        write("from-defaults.xml", "<featureManager><feature>a-1.0</feature></featureManager>");
+        write("from-server.xml", "<featureManager><feature>b-1.0</feature></featureManager>");
+        write("from-overrides.xml", "<featureManager><feature>c-1.0</feature></featureManager>");
+
+        ServerConfig config = ServerConfig.read(dir, dir.resolve("wlp"));
+        assertEquals(List.of(), config.warnings());
+        // the only variable with nothing but a default takes it
+        assertEquals(Set.of("b-1.0", "a-1.0", "c-1.0"), config.features());
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect.feature;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link HeaderLexer} and {@link ManifestKey} read manifests as the regular expressions they replaced did.
+ * To check every feature manifest of a real installation as well, name it with e.g. <code>-Plx.corpus=/opt/wlp</code>.
+ */
+class HeaderLexerTest {
+    /** Header values of the kinds found in feature manifests, and the awkward cases of the header syntax */
+    static final List<String> HEADERS = List.of(
+            "com.ibm.websphere.appserver.servlet-4.0; visibility:=public; singleton:=true",
+            "com.ibm.websphere.appserver.servlet-4.0;visibility:=private",
+            "com.ibm.ws.webcontainer; version=\"[1.1,1.1.100)\",com.ibm.ws.webcontainer.servlet.4.0; version=\"[1.0,1.0.100)\"",
+            "com.ibm.websphere.appserver.javaeeCompatible-8.0; type=\"osgi.subsystem.feature\"; ibm.tolerates:=\"9.0,10.0\"",
+            "com.ibm.ws.org.apache.commons.io; location:=\"dev/api/third-party/,lib/\"; type=\"jar\"",
+            "javax.servlet; type=\"spec\"; location:=\"dev/api/spec/\"; mavenCoordinates=\"javax.servlet:javax.servlet-api:4.0.1\"",
+            "com.ibm.websphere.appserver.api.servlet; type=\"jar\"; location:=dev/api/ibm/,javax.servlet.annotation; type=\"IBM-API\"",
+            "javax.servlet.http; uses:=\"javax.servlet,javax.servlet.annotation\"; version=\"4.0\"",
+            "osgi.identity; filter:=\"(&(type=osgi.subsystem.feature)(|(osgi.identity=com.ibm.websphere.appserver.servlet-3.1)(osgi.identity=com.ibm.websphere.appserver.servlet-4.0)))\"",
+            // escapes are kept, whether or not they are quoted
+            "osgi.identity; filter:=\"(&(osgi.identity=a\\,b)(name=c\\*d))\"",
+            "com.example.escaped; note=\"a \\\"quoted\\\" word\"",
+            "com.example\\,comma; note=semi\\;colon",
+            // whitespace around keys, values and separators
+            "  com.example.spaced  ;  key  =  value  ;  directive  :=  \"  quoted and spaced  \"  ",
+            "com.example.tabs\t;\tkey\t=\tvalue",
+            "com.example.padded;key=\" \";other= \"  x  \"",
+            // empty entries
+            "com.example.a,,com.example.b,",
+            "com.example.only"
+    );
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void headersParseAsBefore() {
+        for (String header : HEADERS) assertSameEntries(RegexHeaderParser.parse(header), HeaderLexer.parse(header), header);
+    }
+
+    @Test
+    void idsAreTrimmed() {
+        // the one intended difference: the regular expressions kept the whitespace before an id after a comma
+        String header = "com.example.a, com.example.b ;version=1.0";
+        assertEquals(" com.example.b ", RegexHeaderParser.parse(header).get(1).id);
+        assertEquals("com.example.b", HeaderLexer.parse(header).get(1).id);
+    }
+
+    @Test
+    void pathsShareAnEntry() {
+        var entries = HeaderLexer.parse("com.example.a;com.example.b;version=\"[1,2)\",com.example.c");
+        assertEquals(2, entries.size());
+        assertEquals(List.of("com.example.a", "com.example.b"), entries.get(0).ids);
+        assertEquals("[1,2)", entries.get(0).getQualifier("version"));
+        assertEquals(List.of("com.example.c"), entries.get(1).ids);
+    }
+
+    @Test
+    void manifestsReadAsBefore() throws IOException {
+        List<Path> manifests = new ArrayList<>();
+        // every header under each key, with long values wrapped onto continuation lines as the JDK writes them
+        ManifestKey[] keys = ManifestKey.values();
+        for (int i = 0; i < keys.length; i++) {
+            var mf = new Manifest();
+            mf.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            for (int j = 0; j < HEADERS.size(); j++) mf.getMainAttributes().putValue(keys[(i + j) % keys.length].header, HEADERS.get(j));
+            // a second section, whose headers are not part of the main attributes
+            mf.getEntries().put("lib/example.jar", new Attributes());
+            mf.getAttributes("lib/example.jar").putValue(keys[i].header, "com.example.section");
+            Path path = dir.resolve("generated-" + i + ".mf");
+            try (OutputStream out = Files.newOutputStream(path)) {
+                mf.write(out);
+            }
+            manifests.add(path);
+        }
+        // written by hand, with CR LF line endings and a multi-byte character split across lines
+        var handWritten = new ByteArrayOutputStream();
+        handWritten.write(("Manifest-Version: 1.0\r\n"
+                + "Subsystem-SymbolicName: com.example.caf\u00e9-1.0; visibility:=public\r\n"
+                + "Subsystem-Content: com.example.a; version=\"[1,2)\",com.example.b; ty\r\n"
+                + " pe=\"osgi.subsystem.feature\"; ibm.tolerates:=\"2.0,\r\n"
+                + "  3.0\"\r\n"
+                + "IBM-ShortName: caf").getBytes(UTF_8));
+        byte[] accent = "\u00e9".getBytes(UTF_8);
+        handWritten.write(accent, 0, 1);
+        handWritten.write("\r\n ".getBytes(UTF_8));
+        handWritten.write(accent, 1, 1);
+        handWritten.write(("-1.0\r\n"
+                + "\r\n"
+                + "Name: lib/example.jar\r\n"
+                + "Subsystem-Content: com.example.section\r\n").getBytes(UTF_8));
+        Path path = dir.resolve("hand-written.mf");
+        Files.write(path, handWritten.toByteArray());
+        manifests.add(path);
+
+        for (Path manifest : manifests) assertReadAsBefore(manifest);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "lx.corpus", matches = ".+")
+    void installationReadsAsBefore() throws IOException {
+        Path features = Path.of(System.getProperty("lx.corpus"), "lib/features");
+        List<Path> manifests;
+        try (Stream<Path> files = Files.list(features)) {
+            manifests = files.filter(p -> p.toString().endsWith(".mf")).sorted().collect(toList());
+        }
+        assertTrue(!manifests.isEmpty(), "No feature manifests in " + features);
+        for (Path manifest : manifests) assertReadAsBefore(manifest);
+    }
+
+    /** Compare every header of a manifest with the one read by the JDK and parsed by the regular expressions */
+    private static void assertReadAsBefore(Path manifest) throws IOException {
+        Attributes expected;
+        try (InputStream in = Files.newInputStream(manifest)) {
+            expected = new Manifest(in).getMainAttributes();
+        }
+        Map<ManifestKey, String> actual = ManifestKey.read(manifest, EnumSet.allOf(ManifestKey.class));
+        for (ManifestKey key : ManifestKey.values()) {
+            String value = expected.getValue(key.header);
+            assertEquals(value, actual.get(key), manifest.getFileName() + ": " + key.header);
+            if (null == value) continue;
+            assertSameEntries(RegexHeaderParser.parse(value), key.parseValues(actual).collect(toList()), manifest.getFileName() + ": " + value);
+        }
+    }
+
+    private static void assertSameEntries(List<ManifestValueEntry> expected, List<ManifestValueEntry> actual, String header) {
+        assertEquals(expected.size(), actual.size(), "number of entries in " + header);
+        for (int i = 0; i < expected.size(); i++) {
+            String id = expected.get(i).id.strip();
+            assertEquals(id, actual.get(i).id, header);
+            assertEquals(List.of(id), actual.get(i).ids, header);
+            assertEquals(qualifiers(expected.get(i)), qualifiers(actual.get(i)), header);
+        }
+    }
+
+    /** Returns the qualifiers of an entry as its string form lists them, after the padded id */
+    private static String qualifiers(ManifestValueEntry entry) {
+        return entry.toString().substring(String.format("%88s : ", entry.id).length());
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * =============================================================================
+ * Copyright (c) 2022 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v20.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ * =============================================================================
+ */
+package io.openliberty.inspect.feature;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.toUnmodifiableList;
+
+/**
+ * The regular expression parser that {@link HeaderLexer} replaced, kept as the reference for its tests
+ * and as the baseline for its benchmark.
+ * The only change is that a parameter without a value now throws an error, where the original exited the JVM.
+ */
+final class RegexHeaderParser {
+    private static final Pattern ELEMENT_PATTERN = Pattern.compile("(([^\",\\\\]|\\\\.)+|\"([^\\\\\"]|\\\\.)*+\")+");
+    private static final String TEXT = "([^\";\\\\]|\\\\.)+";
+    private static final String QUOTED_TEXT = "\"([^\\\\\"]|\\\\.)+\"";
+    private static final Pattern ATOM_PATTERN = Pattern.compile(String.format("(%s|%s)+", TEXT, QUOTED_TEXT));
+
+    private RegexHeaderParser() {}
+
+    static List<ManifestValueEntry> parse(String header) {
+        return ELEMENT_PATTERN.matcher(header)
+                .results()
+                .map(MatchResult::group)
+                .map(RegexHeaderParser::entry)
+                .collect(toUnmodifiableList());
+    }
+
+    private static ManifestValueEntry entry(String text) {
+        Matcher m = ATOM_PATTERN.matcher(text);
+        if (!m.find()) throw new Error("Unable to parse manifest value into constituent parts: " + text);
+        String id = m.group();
+        Map<String, String> map = new TreeMap<>();
+        while (m.find(m.end())) {
+            String[] parts = m.group().split(":?=", 2);
+            if (parts.length == 1) throw new Error("Parameter without a value: " + m.group());
+            String oldValue = map.put(parts[0].trim(), parts[1].trim().replaceFirst("^\"(.*)\"$", "$1"));
+            if (null != oldValue)
+                System.err.printf("WARNING: duplicate metadata key '%s' detected in string '%s'", parts[0], text);
+        }
+        return new ManifestValueEntry(List.of(id), map);
+    }
+}